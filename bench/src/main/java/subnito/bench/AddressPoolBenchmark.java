@@ -0,0 +1,81 @@
+package subnito.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention on the concurrent address pool: every thread allocates a /28
+ * out of one shared /8 and frees the block it allocated WINDOW operations
+ * earlier, so the pool stays partly full. With one stripe all threads share
+ * a single lock; with more, they mostly work in their own stripe.
+ * Run with -t to change the thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AddressPoolBenchmark {
+    private static final int NETWORK = 10 << 24;
+    private static final int PREFIX = 28;
+    // Blocks each thread holds at once
+    private static final int WINDOW = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "64"})
+        public int stripes;
+
+        Object pool;
+
+        @Setup(Level.Iteration)
+        public void setup() throws Throwable {
+            pool = (Object) Engine.NEW_POOL.invokeExact(NETWORK, 8, stripes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Held {
+        final int[] blocks = new int[WINDOW];
+        int next;
+        int count;
+
+        // Give back what this thread still holds, so the next iteration starts empty
+        @TearDown(Level.Iteration)
+        public void release(Pool pool) throws Throwable {
+            for (int i = 0; i < count; i++) {
+                Engine.POOL_FREE.invokeExact(pool.pool, blocks[i], PREFIX);
+            }
+            count = 0;
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public long allocateFree(Pool pool, Held held) throws Throwable {
+        if (held.count == WINDOW) {
+            Engine.POOL_FREE.invokeExact(pool.pool, held.blocks[held.next], PREFIX);
+        } else {
+            held.count++;
+        }
+        long address = (long) Engine.POOL_ALLOCATE.invokeExact(pool.pool, PREFIX);
+        held.blocks[held.next] = (int) address;
+        held.next = (held.next + 1) % WINDOW;
+        return address;
+    }
+}
@@ -0,0 +1,45 @@
+package subnito.bench;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV rendering throughput for a whole plan, written to a discarding Writer
+ * so only the formatting cost is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvExportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int subnets;
+
+    private Object plan;
+
+    @Setup
+    public void setup() {
+        plan = Engine.allocate(0, 0, Engine.requirements(subnets, 1000, 42));
+    }
+
+    @Benchmark
+    public void exportCsv() throws Throwable {
+        Object writer = (Object) Engine.NEW_CSV_WRITER.invokeExact(Writer.nullWriter());
+        Engine.PLAN_WRITER_WRITE.invokeExact(writer, plan);
+    }
+}
@@ -0,0 +1,159 @@
+package subnito.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Entry points of the application for the benchmarks.
+ * The application classes live in the unnamed package, which a named package
+ * cannot import, and JMH refuses benchmarks in the unnamed package. So the
+ * entry points are resolved once here as MethodHandles; held in static final
+ * fields they are constant for the JIT and inline like direct calls.
+ */
+final class Engine {
+    // Ipv4.parse(CharSequence) -> long
+    static final MethodHandle IPV4_PARSE;
+    // Ipv4.append(StringBuilder, int) -> StringBuilder
+    static final MethodHandle IPV4_APPEND;
+    // Ipv4.write(byte[], int, int) -> int
+    static final MethodHandle IPV4_WRITE;
+    // VlsmAllocator.prefixFor(int) -> int
+    static final MethodHandle PREFIX_FOR;
+    // VlsmAllocator.allocate(int, int, List) -> VlsmPlan
+    static final MethodHandle ALLOCATE;
+    // new Subnet(String, int)
+    static final MethodHandle NEW_SUBNET;
+    // new CsvPlanWriter(Writer)
+    static final MethodHandle NEW_CSV_WRITER;
+    // PlanWriter.write(VlsmPlan)
+    static final MethodHandle PLAN_WRITER_WRITE;
+    // new BinaryPlanWriter(OutputStream)
+    static final MethodHandle NEW_BINARY_WRITER;
+    // MappedPlanReader.open(Path) -> MappedPlanReader
+    static final MethodHandle MAPPED_OPEN;
+    // MappedPlanReader.getPlan(int) -> MappedPlan
+    static final MethodHandle MAPPED_GET_PLAN;
+    // MappedPlan.size() -> int
+    static final MethodHandle MAPPED_SIZE;
+    // MappedPlan.getNetwork(int) -> int
+    static final MethodHandle MAPPED_NETWORK;
+    // new ConcurrentAddressPool(int, int, int)
+    static final MethodHandle NEW_POOL;
+    // ConcurrentAddressPool.allocate(int) -> long
+    static final MethodHandle POOL_ALLOCATE;
+    // ConcurrentAddressPool.free(int, int)
+    static final MethodHandle POOL_FREE;
+    // VlsmPlan.getUsedAddresses() -> long
+    static final MethodHandle PLAN_USED;
+    // SubnetLookupTable.of(VlsmPlan) -> SubnetLookupTable
+    static final MethodHandle LOOKUP_TABLE;
+    // SubnetLookupTable.lookup(int[], int[])
+    static final MethodHandle LOOKUP_BULK;
+
+    static {
+        try {
+            Class<?> ipv4 = Class.forName("Ipv4");
+            Class<?> allocator = Class.forName("VlsmAllocator");
+            Class<?> subnet = Class.forName("Subnet");
+            Class<?> plan = Class.forName("VlsmPlan");
+            Class<?> csvWriter = Class.forName("CsvPlanWriter");
+            Class<?> planWriter = Class.forName("PlanWriter");
+            Class<?> binaryWriter = Class.forName("BinaryPlanWriter");
+            Class<?> reader = Class.forName("MappedPlanReader");
+            Class<?> mappedPlan = Class.forName("MappedPlanReader$MappedPlan");
+            Class<?> pool = Class.forName("ConcurrentAddressPool");
+            Class<?> lookupTable = Class.forName("SubnetLookupTable");
+
+            IPV4_PARSE = lookup(ipv4).findStatic(ipv4, "parse",
+                MethodType.methodType(long.class, CharSequence.class));
+            IPV4_APPEND = lookup(ipv4).findStatic(ipv4, "append",
+                MethodType.methodType(StringBuilder.class, StringBuilder.class, int.class));
+            IPV4_WRITE = lookup(ipv4).findStatic(ipv4, "write",
+                MethodType.methodType(int.class, byte[].class, int.class, int.class));
+            PREFIX_FOR = lookup(allocator).findStatic(allocator, "prefixFor",
+                MethodType.methodType(int.class, int.class));
+            ALLOCATE = lookup(allocator).findStatic(allocator, "allocate",
+                MethodType.methodType(plan, int.class, int.class, List.class))
+                .asType(MethodType.methodType(Object.class, int.class, int.class, List.class));
+            NEW_SUBNET = lookup(subnet).findConstructor(subnet,
+                MethodType.methodType(void.class, String.class, int.class))
+                .asType(MethodType.methodType(Object.class, String.class, int.class));
+            NEW_CSV_WRITER = lookup(csvWriter).findConstructor(csvWriter,
+                MethodType.methodType(void.class, java.io.Writer.class))
+                .asType(MethodType.methodType(Object.class, java.io.Writer.class));
+            PLAN_WRITER_WRITE = lookup(planWriter).findVirtual(planWriter, "write",
+                MethodType.methodType(void.class, plan))
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            NEW_BINARY_WRITER = lookup(binaryWriter).findConstructor(binaryWriter,
+                MethodType.methodType(void.class, java.io.OutputStream.class))
+                .asType(MethodType.methodType(Object.class, java.io.OutputStream.class));
+            MAPPED_OPEN = lookup(reader).findStatic(reader, "open",
+                MethodType.methodType(reader, java.nio.file.Path.class))
+                .asType(MethodType.methodType(Object.class, java.nio.file.Path.class));
+            MAPPED_GET_PLAN = lookup(reader).findVirtual(reader, "getPlan",
+                MethodType.methodType(mappedPlan, int.class))
+                .asType(MethodType.methodType(Object.class, Object.class, int.class));
+            MAPPED_SIZE = lookup(mappedPlan).findVirtual(mappedPlan, "size",
+                MethodType.methodType(int.class))
+                .asType(MethodType.methodType(int.class, Object.class));
+            MAPPED_NETWORK = lookup(mappedPlan).findVirtual(mappedPlan, "getNetwork",
+                MethodType.methodType(int.class, int.class))
+                .asType(MethodType.methodType(int.class, Object.class, int.class));
+            NEW_POOL = lookup(pool).findConstructor(pool,
+                MethodType.methodType(void.class, int.class, int.class, int.class))
+                .asType(MethodType.methodType(Object.class, int.class, int.class, int.class));
+            POOL_ALLOCATE = lookup(pool).findVirtual(pool, "allocate",
+                MethodType.methodType(long.class, int.class))
+                .asType(MethodType.methodType(long.class, Object.class, int.class));
+            POOL_FREE = lookup(pool).findVirtual(pool, "free",
+                MethodType.methodType(void.class, int.class, int.class))
+                .asType(MethodType.methodType(void.class, Object.class, int.class, int.class));
+            PLAN_USED = lookup(plan).findVirtual(plan, "getUsedAddresses",
+                MethodType.methodType(long.class))
+                .asType(MethodType.methodType(long.class, Object.class));
+            LOOKUP_TABLE = lookup(lookupTable).findStatic(lookupTable, "of",
+                MethodType.methodType(lookupTable, plan))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            LOOKUP_BULK = lookup(lookupTable).findVirtual(lookupTable, "lookup",
+                MethodType.methodType(void.class, int[].class, int[].class))
+                .asType(MethodType.methodType(void.class, Object.class, int[].class, int[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engine() {
+    }
+
+    // Benchmarks and application share the class path, hence the unnamed module,
+    // so a private lookup also reaches package-private members
+    private static MethodHandles.Lookup lookup(Class<?> target) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+    }
+
+    // count requirements of 1 to maxHosts hosts, reproducible for a given seed
+    static List<Object> requirements(int count, int maxHosts, long seed) {
+        Random random = new Random(seed);
+        List<Object> requirements = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                requirements.add((Object) NEW_SUBNET.invokeExact("subnet-" + i, 1 + random.nextInt(maxHosts)));
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return requirements;
+    }
+
+    static Object allocate(int network, int mask, List<Object> requirements) {
+        try {
+            return (Object) ALLOCATE.invokeExact(network, mask, (List) requirements);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package subnito.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * IPv4 dotted-quad parsing and formatting, per address.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Ipv4Benchmark {
+    private static final int COUNT = 1024;
+
+    private final String[] texts = new String[COUNT];
+    private final int[] addresses = new int[COUNT];
+    private final StringBuilder sb = new StringBuilder(16);
+    private final byte[] buf = new byte[16];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < COUNT; i++) {
+            addresses[i] = random.nextInt();
+            texts[i] = (addresses[i] >>> 24) + "." + ((addresses[i] >>> 16) & 0xFF) + "."
+                       + ((addresses[i] >>> 8) & 0xFF) + "." + (addresses[i] & 0xFF);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void parse(Blackhole bh) throws Throwable {
+        for (String text : texts) {
+            bh.consume((long) Engine.IPV4_PARSE.invokeExact((CharSequence) text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void formatStringBuilder(Blackhole bh) throws Throwable {
+        for (int address : addresses) {
+            sb.setLength(0);
+            bh.consume((StringBuilder) Engine.IPV4_APPEND.invokeExact(sb, address));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void formatBytes(Blackhole bh) throws Throwable {
+        for (int address : addresses) {
+            bh.consume((int) Engine.IPV4_WRITE.invokeExact(buf, 0, address));
+        }
+    }
+}
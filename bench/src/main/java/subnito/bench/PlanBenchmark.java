@@ -0,0 +1,45 @@
+package subnito.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end plan computation: sort, size and place every requirement.
+ * The parent is 0.0.0.0/0 so every size fits; requirements ask for 1 to
+ * 1000 hosts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlanBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int subnets;
+
+    private List<Object> requirements;
+
+    @Setup
+    public void setup() {
+        requirements = Engine.requirements(subnets, 1000, 42);
+    }
+
+    @Benchmark
+    public Object allocate() {
+        return Engine.allocate(0, 0, requirements);
+    }
+}
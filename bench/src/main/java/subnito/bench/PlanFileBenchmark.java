@@ -0,0 +1,76 @@
+package subnito.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binary plan format: writing a whole plan to a discarding stream, and
+ * scanning the network column of a mapped plan file the way a consumer would
+ * index it. The file is mapped once in setup, so only the scan is measured;
+ * opening it again per call would leave a mapping behind each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlanFileBenchmark {
+
+    @Param({"1000", "100000"})
+    public int subnets;
+
+    private Object plan;
+    private Path file;
+    private Object mapped;
+
+    @Setup
+    public void setup() throws Throwable {
+        plan = Engine.allocate(0, 0, Engine.requirements(subnets, 1000, 42));
+        file = Files.createTempFile("plan", ".vlsp");
+        Object writer = (Object) Engine.NEW_BINARY_WRITER.invokeExact(Files.newOutputStream(file));
+        Engine.PLAN_WRITER_WRITE.invokeExact(writer, plan);
+        ((java.io.Closeable) writer).close();
+        Object reader = (Object) Engine.MAPPED_OPEN.invokeExact(file);
+        mapped = (Object) Engine.MAPPED_GET_PLAN.invokeExact(reader, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapped = null;
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeBinary() throws Throwable {
+        Object writer = (Object) Engine.NEW_BINARY_WRITER.invokeExact(OutputStream.nullOutputStream());
+        Engine.PLAN_WRITER_WRITE.invokeExact(writer, plan);
+        ((java.io.Flushable) writer).flush();
+    }
+
+    @Benchmark
+    public int scanMapped() throws Throwable {
+        int size = (int) Engine.MAPPED_SIZE.invokeExact(mapped);
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += (int) Engine.MAPPED_NETWORK.invokeExact(mapped, i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+package subnito.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk address to subnet lookups through the stride table, reported as
+ * lookups per microsecond. The plan packs 1 to 200 host subnets in 10.0.0.0/8;
+ * the addresses are drawn uniformly over the allocated part of it, which is
+ * the worst case for the caches (real flow logs repeat addresses).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubnetLookupBenchmark {
+    private static final int ADDRESSES = 1 << 20;
+
+    @Param({"1000", "100000"})
+    public int subnets;
+
+    private Object table;
+    private int[] addresses;
+    private int[] result;
+
+    @Setup
+    public void setup() throws Throwable {
+        Object plan = Engine.allocate(10 << 24, 8, Engine.requirements(subnets, 200, 42));
+        table = (Object) Engine.LOOKUP_TABLE.invokeExact(plan);
+        long used = (long) Engine.PLAN_USED.invokeExact(plan);
+        Random random = new Random(42);
+        addresses = new int[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = (10 << 24) + (int) (random.nextDouble() * used);
+        }
+        result = new int[ADDRESSES];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ADDRESSES)
+    public int[] bulkLookup() throws Throwable {
+        Engine.LOOKUP_BULK.invokeExact(table, addresses, result);
+        return result;
+    }
+}
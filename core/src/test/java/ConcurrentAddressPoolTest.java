@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ConcurrentAddressPool under contention: threads allocate and free at
+ * random, and every address handed out is marked in a shared array, so a
+ * block given to two threads at once shows up as an address marked twice.
+ */
+class ConcurrentAddressPoolTest {
+    private static final int NETWORK = Ipv4.parseAddress("10.0.0.0");
+    private static final int MASK = 16;
+    private static final int THREADS = 8;
+
+    @Test
+    void mustNeverHandOutOverlappingBlocks() throws Exception {
+        // 16 stripes of a /20: the /19 and /18 requests take whole stripes
+        ConcurrentAddressPool pool = new ConcurrentAddressPool(NETWORK, MASK, 16);
+        AtomicIntegerArray owner = new AtomicIntegerArray(1 << (32 - MASK));
+        runThreads(thread -> {
+            Random random = new Random(thread);
+            List<long[]> held = new ArrayList<>();
+            for (int op = 0; op < 20_000; op++) {
+                if (!held.isEmpty() && (random.nextInt(3) == 0 || held.size() > 64)) {
+                    long[] block = held.remove(random.nextInt(held.size()));
+                    mark(owner, block, thread + 1, 0);
+                    pool.free((int) block[0], (int) block[1]);
+                    continue;
+                }
+                int prefix = random.nextInt(50) == 0 ? 18 + random.nextInt(2) : 22 + random.nextInt(11);
+                long address = pool.allocate(prefix);
+                if (address >= 0) {
+                    long[] block = {address, prefix};
+                    mark(owner, block, 0, thread + 1);
+                    held.add(block);
+                }
+            }
+            for (long[] block : held) {
+                mark(owner, block, thread + 1, 0);
+                pool.free((int) block[0], (int) block[1]);
+            }
+        });
+        assertEquals(0, pool.getAllocatedBlocks());
+        assertEquals(1L << (32 - MASK), pool.getFreeAddresses());
+    }
+
+    @Test
+    void allocateFailsOnlyWhenThePoolIsFull() throws Exception {
+        // Nothing is freed, so once a thread sees -1 no /30 may be left anywhere
+        ConcurrentAddressPool pool = new ConcurrentAddressPool(NETWORK, MASK, 16);
+        runThreads(thread -> {
+            while (pool.allocate(30) >= 0) {
+                // keep going until the pool reports it full
+            }
+        });
+        assertEquals(0, pool.getFreeAddresses());
+        assertEquals(1 << (32 - MASK - 2), pool.getAllocatedBlocks());
+    }
+
+    @Test
+    void doubleFreeIsRefused() {
+        ConcurrentAddressPool pool = new ConcurrentAddressPool(NETWORK, MASK, 4);
+        int address = (int) pool.allocate(24);
+        pool.free(address, 24);
+        assertThrows(IllegalArgumentException.class, () -> pool.free(address, 24));
+        int large = (int) pool.allocate(17);
+        assertThrows(IllegalArgumentException.class, () -> pool.free(large, 18));
+    }
+
+    // Move every address of block from one owner to the other; fails if another thread holds one
+    private static void mark(AtomicIntegerArray owner, long[] block, int from, int to) {
+        int first = (int) (block[0] - Integer.toUnsignedLong(NETWORK));
+        int size = 1 << (32 - (int) block[1]);
+        for (int i = first; i < first + size; i++) {
+            if (!owner.compareAndSet(i, from, to)) {
+                throw new AssertionError("Bloc " + Ipv4.toString((int) block[0]) + "/" + block[1]
+                                         + " chevauche un bloc du thread " + owner.get(i));
+            }
+        }
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static void runThreads(Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Subnet sizing of VlsmAllocator against its definition: a subnet for h
+ * hosts is the smallest power of two holding h + 2 addresses (network and
+ * broadcast included), for every host count up to Subnet.MAX_HOTES.
+ */
+class HostSizingTest {
+
+    @Test
+    void everyHostCountGetsTheSmallestBlock() {
+        long expected = 4;
+        for (int hotes = 1; hotes <= Subnet.MAX_HOTES; hotes++) {
+            while (expected < hotes + 2L) {
+                expected <<= 1;
+            }
+            int bits = VlsmAllocator.hostBits(hotes);
+            if ((1L << bits) != expected) {
+                assertEquals(expected, 1L << bits, "hôtes " + hotes);
+            }
+        }
+    }
+
+    @Test
+    void powerOfTwoEdges() {
+        for (int k = 2; k <= 30; k++) {
+            // 2^k - 2 hosts fill a /(32-k) exactly; one more needs the next size
+            int full = (1 << k) - 2;
+            assertEquals(k, VlsmAllocator.hostBits(full), "hôtes " + full);
+            assertEquals(32 - k, VlsmAllocator.prefixFor(full), "hôtes " + full);
+            assertEquals(1L << k, VlsmAllocator.blockSize(full), "hôtes " + full);
+            if (k < 30) {
+                assertEquals(k + 1, VlsmAllocator.hostBits(full + 1), "hôtes " + (full + 1));
+            }
+        }
+        assertEquals(30, VlsmAllocator.hostBits(Subnet.MAX_HOTES));
+    }
+
+    @Test
+    void outOfRangeHostCountsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> VlsmAllocator.hostBits(0));
+        assertThrows(IllegalArgumentException.class, () -> VlsmAllocator.hostBits(-1));
+        assertThrows(IllegalArgumentException.class, () -> VlsmAllocator.hostBits(Subnet.MAX_HOTES + 1));
+    }
+}
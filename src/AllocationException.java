@@ -0,0 +1,26 @@
+/**
+ * Thrown when a requirement cannot be placed inside the parent network.
+ * Carries the requirement and its index in the input list so callers can
+ * report exactly which subnet overflowed.
+ */
+public class AllocationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int requirementIndex;
+    private final Subnet requirement;
+
+    public AllocationException(String message, int requirementIndex, Subnet requirement) {
+        super(message);
+        this.requirementIndex = requirementIndex;
+        this.requirement = requirement;
+    }
+
+    // Index of the requirement in the input list
+    public int getRequirementIndex() {
+        return requirementIndex;
+    }
+
+    public Subnet getRequirement() {
+        return requirement;
+    }
+}
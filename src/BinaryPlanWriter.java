@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compact binary output for plans, read back by MappedPlanReader.
+ * Each plan is one section, stored column by column in little-endian order:
+ *
+ *   0   "SVLP" magic, version (short), reserved (short)
+ *   8   parent network (int), parent prefix (int)
+ *   16  row count n (int), length of the names block in bytes (int)
+ *   24  network[n] (int), hosts[n] (int), name offsets[n + 1] (int),
+ *       prefix[n] (byte), names (UTF-8), zero padding to a multiple of 8
+ *
+ * A plan computed around excluded ranges is written as version 2: the header
+ * goes on with the excluded block count k (int) and a reserved int, so the
+ * columns start at 32, and excluded[k] (long, address << 6 | prefix) follows
+ * the padding. Other plans keep the version 1 layout.
+ *
+ * Rows are always in input order. A file holds any number of sections one
+ * after the other; each must stay under 2 GiB so it can be mapped at once.
+ */
+public class BinaryPlanWriter implements PlanWriter {
+    static final int MAGIC = 0x504C5653; // "SVLP" in little-endian
+    static final short VERSION = 1;
+    // Written instead of VERSION when the plan has excluded blocks
+    static final short EXCLUSIONS_VERSION = 2;
+    static final int HEADER_SIZE = 24;
+
+    private static final int PROGRESS_STEP = 4096;
+    // Column passes over the rows, for progress reporting
+    private static final int PASSES = 5;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(PlanExport.BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private VlsmAllocator.ProgressListener listener;
+
+    public BinaryPlanWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void setProgressListener(VlsmAllocator.ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(VlsmPlan plan) throws IOException {
+        int n = plan.size();
+        int total = PASSES * n;
+
+        // Name offsets first: the UTF-8 length of each name is computed without encoding it
+        int[] offsets = new int[n + 1];
+        long namesLength = 0;
+        for (int i = 0; i < n; i++) {
+            progress(i, total);
+            namesLength += utf8Length(plan.get(i).getName());
+            if (namesLength > Integer.MAX_VALUE) {
+                throw new IOException("Plan trop grand pour le format binaire.");
+            }
+            offsets[i + 1] = (int) namesLength;
+        }
+        long[] excluded = plan.getExcludedBlocks();
+        short version = excluded.length == 0 ? VERSION : EXCLUSIONS_VERSION;
+        long size = sectionSize(version, n, (int) namesLength, excluded.length);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Plan trop grand pour le format binaire.");
+        }
+
+        buffer.putInt(MAGIC).putShort(version).putShort((short) 0);
+        buffer.putInt(plan.getReseau()).putInt(plan.getMasque());
+        buffer.putInt(n).putInt((int) namesLength);
+        if (version == EXCLUSIONS_VERSION) {
+            buffer.putInt(excluded.length).putInt(0);
+        }
+        for (int i = 0; i < n; i++) {
+            progress(n + i, total);
+            ensure(4).putInt(plan.get(i).getReseau());
+        }
+        for (int i = 0; i < n; i++) {
+            progress(2 * n + i, total);
+            ensure(4).putInt(plan.get(i).getHotes());
+        }
+        for (int offset : offsets) {
+            ensure(4).putInt(offset);
+        }
+        for (int i = 0; i < n; i++) {
+            progress(3 * n + i, total);
+            ensure(1).put((byte) plan.get(i).getMasque());
+        }
+        for (int i = 0; i < n; i++) {
+            progress(4 * n + i, total);
+            putUtf8(plan.get(i).getName());
+        }
+        long written = headerSize(version) + 12L * n + 4 + n + namesLength;
+        for (long pad = written; pad < size - 8L * excluded.length; pad++) {
+            ensure(1).put((byte) 0);
+        }
+        for (long block : excluded) {
+            ensure(8).putLong(block);
+        }
+        drain();
+        if (listener != null) {
+            listener.progress(total, total);
+        }
+    }
+
+    private void progress(int done, int total) {
+        if (done % PROGRESS_STEP == 0) {
+            VlsmAllocator.checkProgress(listener, done, total);
+        }
+    }
+
+    static int headerSize(short version) {
+        return version == VERSION ? HEADER_SIZE : HEADER_SIZE + 8;
+    }
+
+    // Bytes taken by a section, padding and excluded blocks included
+    static long sectionSize(short version, int rows, int namesLength, int excludedBlocks) {
+        long size = headerSize(version) + 12L * rows + 4 + rows + namesLength;
+        return ((size + 7) & ~7L) + 8L * excludedBlocks;
+    }
+
+    // UTF-8 length of a name; an unpaired surrogate counts as one byte ('?'), as in putUtf8
+    static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void putUtf8(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1).put((byte) c);
+            } else if (c < 0x800) {
+                ensure(2).put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4).put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                         .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1).put((byte) '?');
+            } else {
+                ensure(3).put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    // The buffer, drained first if fewer than bytes remain
+    private ByteBuffer ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+        return buffer;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Buddy allocator over one parent IPv4 block.
+ * Free space is kept as naturally aligned blocks, one sorted free list per
+ * prefix length. A request for a /p takes the lowest free block of the
+ * largest prefix <= p that has one and splits it down, so every block handed
+ * out is aligned on its own size and stays inside the parent. Freed blocks
+ * are merged back with their buddy. A given block can also be reserved, e.g.
+ * to keep the address of an existing subnet; the free block containing it
+ * is split down around it. Each operation touches at most 33 lists,
+ * each in O(log n). A parent with many blocks already taken (see Exclusions)
+ * is built directly with the free blocks around them instead.
+ */
+final class BuddyAllocator {
+    private final int reseau;
+    private final int masque;
+    // free.get(p) holds the free /p blocks, as unsigned addresses
+    private final List<TreeSet<Long>> free;
+    private long freeAddresses;
+    // End (unsigned, exclusive) of the highest block taken so far; freeing does not lower it
+    private long top;
+
+    BuddyAllocator(int reseau, int masque) {
+        if (masque < 0 || masque > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + masque + ". Doit être entre 0 et 32.");
+        }
+        if ((reseau & ~Ipv4.maskBits(masque)) != 0) {
+            throw new IllegalArgumentException("Adresse réseau invalide: " + Ipv4.toString(reseau) + "/" + masque);
+        }
+        this.reseau = reseau;
+        this.masque = masque;
+        this.free = new ArrayList<>(33);
+        for (int p = 0; p <= 32; p++) {
+            free.add(new TreeSet<>());
+        }
+        free.get(masque).add(reseau & 0xFFFFFFFFL);
+        this.freeAddresses = 1L << (32 - masque);
+        this.top = reseau & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Parent with the given blocks already taken: sorted by address, disjoint,
+     * inside the parent and packed as (unsigned address << 6) | prefix. Each
+     * range between them is cut into the largest aligned blocks, in address
+     * order; those are exactly the free blocks that reserving every taken
+     * block would leave, without splitting down from the parent each time.
+     */
+    BuddyAllocator(int reseau, int masque, long[] taken) {
+        this(reseau, masque);
+        if (taken.length == 0) {
+            return;
+        }
+        free.get(masque).clear();
+        freeAddresses = 0;
+        long cursor = reseau & 0xFFFFFFFFL;
+        for (long block : taken) {
+            int prefix = (int) (block & 63);
+            checkBlock((int) (block >>> 6), prefix);
+            if (block >>> 6 < cursor) {
+                throw new IllegalArgumentException("Blocs non triés ou qui se chevauchent: "
+                                                   + Ipv4.toString((int) (block >>> 6)) + "/" + prefix);
+            }
+            addFreeRange(cursor, block >>> 6);
+            cursor = (block >>> 6) + (1L << (32 - prefix));
+        }
+        addFreeRange(cursor, (reseau & 0xFFFFFFFFL) + (1L << (32 - masque)));
+        top = cursor;
+    }
+
+    // Largest aligned blocks covering [start, end), added to the free list of their size
+    private void addFreeRange(long start, long end) {
+        while (start < end) {
+            long size = start == 0 ? 1L << 32 : Long.lowestOneBit(start);
+            while (start + size > end) {
+                size >>>= 1;
+            }
+            free.get(32 - Long.numberOfTrailingZeros(size)).add(start);
+            freeAddresses += size;
+            start += size;
+        }
+    }
+
+    int getReseau() {
+        return reseau;
+    }
+
+    int getMasque() {
+        return masque;
+    }
+
+    long getFreeAddresses() {
+        return freeAddresses;
+    }
+
+    // Prefix length of the largest free (hence aligned) block, or -1 when nothing is free
+    int largestFreePrefix() {
+        for (int p = masque; p <= 32; p++) {
+            if (!free.get(p).isEmpty()) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    // Allocate a /prefix block from the smallest free block that can hold it (best fit), the
+    // lowest one among equals; returns its address as an unsigned value, or -1 if nothing fits
+    long allocate(int prefix) {
+        if (prefix < masque || prefix > 32) {
+            return -1;
+        }
+        int level = prefix;
+        while (level >= masque && free.get(level).isEmpty()) {
+            level--;
+        }
+        if (level < masque) {
+            return -1;
+        }
+        return split(level, free.get(level).first(), prefix);
+    }
+
+    // Allocate a /prefix block at the lowest address that can hold one, whatever the size of
+    // the free block it comes from; returns its address as an unsigned value, or -1 if nothing fits
+    long allocateLowest(int prefix) {
+        if (prefix < masque || prefix > 32) {
+            return -1;
+        }
+        int level = -1;
+        long block = Long.MAX_VALUE;
+        for (int p = masque; p <= prefix; p++) {
+            TreeSet<Long> blocks = free.get(p);
+            if (!blocks.isEmpty() && blocks.first() < block) {
+                level = p;
+                block = blocks.first();
+            }
+        }
+        if (level < 0) {
+            return -1;
+        }
+        return split(level, block, prefix);
+    }
+
+    /**
+     * Allocate a /prefix block from the smallest gap that can hold it, the
+     * lowest one among equals: a gap is a free block below the end of the
+     * highest block taken so far, left by alignment, exclusions or freed
+     * subnets. Without one, the block is carved at the lowest address above,
+     * so the space past the highest block stays in one piece as long as
+     * possible. Returns its address as an unsigned value, or -1 if nothing fits.
+     */
+    long allocateInGap(int prefix) {
+        if (prefix < masque || prefix > 32) {
+            return -1;
+        }
+        for (int level = prefix; level >= masque; level--) {
+            TreeSet<Long> blocks = free.get(level);
+            if (!blocks.isEmpty() && blocks.first() < top) {
+                return split(level, blocks.first(), prefix);
+            }
+        }
+        return allocateLowest(prefix);
+    }
+
+    // Take the free /level block and split it down to a /prefix at its address; the upper
+    // half at each split goes back to the free lists. Returns the block address
+    private long split(int level, long block, int prefix) {
+        free.get(level).remove(block);
+        while (level < prefix) {
+            level++;
+            free.get(level).add(block + (1L << (32 - level)));
+        }
+        freeAddresses -= 1L << (32 - prefix);
+        top = Math.max(top, block + (1L << (32 - prefix)));
+        return block;
+    }
+
+    // Take the given /prefix block if it is entirely free; returns false otherwise
+    boolean reserve(int address, int prefix) {
+        checkBlock(address, prefix);
+        long target = address & 0xFFFFFFFFL;
+        // Find the free block that contains it, then split down towards it
+        int level = prefix;
+        while (level >= masque && !free.get(level).remove(target & Ipv4.maskBits(level) & 0xFFFFFFFFL)) {
+            level--;
+        }
+        if (level < masque) {
+            return false;
+        }
+        while (level < prefix) {
+            level++;
+            free.get(level).add((target & Ipv4.maskBits(level) & 0xFFFFFFFFL) ^ (1L << (32 - level)));
+        }
+        freeAddresses -= 1L << (32 - prefix);
+        top = Math.max(top, target + (1L << (32 - prefix)));
+        return true;
+    }
+
+    // Give back a block obtained from allocate, merging it with its buddy while possible
+    void free(int address, int prefix) {
+        checkBlock(address, prefix);
+        freeAddresses += 1L << (32 - prefix);
+        long block = address & 0xFFFFFFFFL;
+        int level = prefix;
+        while (level > masque) {
+            long buddy = block ^ (1L << (32 - level));
+            if (!free.get(level).remove(buddy)) {
+                break;
+            }
+            block = Math.min(block, buddy);
+            level--;
+        }
+        free.get(level).add(block);
+    }
+
+    // A block must be aligned on its size and lie inside the parent
+    private void checkBlock(int address, int prefix) {
+        if (prefix < masque || prefix > 32 || (address & ~Ipv4.maskBits(prefix)) != 0
+                || (address & Ipv4.maskBits(masque)) != reseau) {
+            throw new IllegalArgumentException("Bloc invalide: " + Ipv4.toString(address) + "/" + prefix);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived address pool under one parent block, shared by many threads
+ * that allocate and free subnets at any time (per-tenant carving, lab
+ * environments). The parent is cut into a power-of-two number of stripes,
+ * each a BuddyAllocator behind its own lock, so threads working in different
+ * stripes never contend. A thread starts at a stripe picked from its identity
+ * hash and moves on to the next ones when that stripe has no room; a
+ * volatile hint of the largest free block per stripe lets it skip full
+ * stripes without locking. The hint can be stale, so before giving up the
+ * thread looks at every stripe again with all locks held: a failed allocate
+ * is slow, but its -1 is never a stale answer. Blocks larger than a stripe
+ * take whole free stripes, with every lock held in index order. Every change
+ * happens under the lock of the stripes it touches, so allocate and free are
+ * linearizable and a block is never handed out twice. Allocated blocks are
+ * recorded, so freeing a block that is not allocated (a double free, or the
+ * wrong prefix) is refused.
+ */
+public final class ConcurrentAddressPool {
+    private final int reseau;
+    private final int masque;
+    // Prefix length of one stripe
+    private final int stripePrefix;
+    private final Stripe[] stripes;
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final BuddyAllocator space;
+        // Allocated blocks starting in this stripe: address -> prefix
+        final Map<Integer, Integer> allocated = new HashMap<>();
+        // Largest free prefix, -1 if full; written under the lock, read without it as a hint
+        volatile int largestFree;
+
+        Stripe(int network, int prefix) {
+            space = new BuddyAllocator(network, prefix);
+            largestFree = prefix;
+        }
+    }
+
+    public ConcurrentAddressPool(int network, int mask) {
+        this(network, mask, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Pool over network/mask with about stripeCount stripes (rounded up to a
+     * power of two, and at most one per address).
+     */
+    public ConcurrentAddressPool(int network, int mask, int stripeCount) {
+        if (mask < 0 || mask > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + mask + ". Doit être entre 0 et 32.");
+        }
+        if ((network & ~Ipv4.maskBits(mask)) != 0) {
+            throw new IllegalArgumentException("Adresse réseau invalide: " + Ipv4.toString(network) + "/" + mask);
+        }
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Nombre de stripes invalide: " + stripeCount);
+        }
+        int stripeBits = Math.min(32 - Integer.numberOfLeadingZeros(stripeCount - 1), 32 - mask);
+        this.reseau = network;
+        this.masque = mask;
+        this.stripePrefix = mask + stripeBits;
+        this.stripes = new Stripe[1 << stripeBits];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(network + (int) ((long) i << (32 - stripePrefix)), stripePrefix);
+        }
+    }
+
+    public int getReseau() {
+        return reseau;
+    }
+
+    public int getMasque() {
+        return masque;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Allocate a /prefix block; returns its network address as an unsigned
+     * value, or -1 if the pool has no free block of that size.
+     */
+    public long allocate(int prefix) {
+        if (prefix < masque || prefix > 32) {
+            throw new IllegalArgumentException("Préfixe invalide: /" + prefix + " dans un réseau /" + masque);
+        }
+        if (prefix < stripePrefix) {
+            return allocateStripes(prefix);
+        }
+        int n = stripes.length;
+        int start = homeStripe();
+        // Skip busy stripes first, then wait for the ones skipped
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < n; i++) {
+                Stripe stripe = stripes[(start + i) & (n - 1)];
+                int largest = stripe.largestFree;
+                if (largest < 0 || largest > prefix) {
+                    continue;
+                }
+                if (pass == 0) {
+                    if (!stripe.lock.tryLock()) {
+                        continue;
+                    }
+                } else {
+                    stripe.lock.lock();
+                }
+                try {
+                    long address = stripe.space.allocate(prefix);
+                    if (address >= 0) {
+                        stripe.allocated.put((int) address, prefix);
+                        stripe.largestFree = stripe.space.largestFreePrefix();
+                        return address;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        // The hints or a concurrent free may have hidden a block: look again with the pool frozen
+        lockAll();
+        try {
+            for (int i = 0; i < n; i++) {
+                Stripe stripe = stripes[(start + i) & (n - 1)];
+                long address = stripe.space.allocate(prefix);
+                if (address >= 0) {
+                    stripe.allocated.put((int) address, prefix);
+                    stripe.largestFree = stripe.space.largestFreePrefix();
+                    return address;
+                }
+            }
+            return -1;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Same for a subnet of hotes hosts
+    public long allocateHosts(int hotes) {
+        return allocate(VlsmAllocator.prefixFor(hotes));
+    }
+
+    /**
+     * Give back a block obtained from allocate. Throws IllegalArgumentException
+     * if that exact block is not currently allocated.
+     */
+    public void free(int address, int prefix) {
+        if (prefix < masque || prefix > 32 || (address & ~Ipv4.maskBits(prefix)) != 0
+                || (address & Ipv4.maskBits(masque)) != reseau) {
+            throw new IllegalArgumentException("Bloc invalide: " + Ipv4.toString(address) + "/" + prefix);
+        }
+        if (prefix < stripePrefix) {
+            freeStripes(address, prefix);
+            return;
+        }
+        Stripe stripe = stripes[stripeIndex(address)];
+        stripe.lock.lock();
+        try {
+            Integer allocated = stripe.allocated.get(address);
+            if (allocated == null || allocated != prefix) {
+                throw notAllocated(address, prefix);
+            }
+            stripe.allocated.remove(address);
+            stripe.space.free(address, prefix);
+            stripe.largestFree = stripe.space.largestFreePrefix();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Free addresses in the pool; a snapshot, exact when no other thread is changing it
+    public long getFreeAddresses() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.space.getFreeAddresses();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    // Number of blocks currently allocated; a snapshot like getFreeAddresses()
+    public int getAllocatedBlocks() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.allocated.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    // A block larger than a stripe: the first aligned run of whole free stripes, all locks held
+    private long allocateStripes(int prefix) {
+        int run = 1 << (stripePrefix - prefix);
+        lockAll();
+        try {
+            for (int first = 0; first < stripes.length; first += run) {
+                if (allFree(first, run)) {
+                    for (int i = first; i < first + run; i++) {
+                        stripes[i].space.reserve(stripes[i].space.getReseau(), stripePrefix);
+                        stripes[i].largestFree = -1;
+                    }
+                    int address = stripes[first].space.getReseau();
+                    stripes[first].allocated.put(address, prefix);
+                    return Integer.toUnsignedLong(address);
+                }
+            }
+            return -1;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void freeStripes(int address, int prefix) {
+        int first = stripeIndex(address);
+        int run = 1 << (stripePrefix - prefix);
+        lockAll();
+        try {
+            Integer allocated = stripes[first].allocated.get(address);
+            if (allocated == null || allocated != prefix) {
+                throw notAllocated(address, prefix);
+            }
+            stripes[first].allocated.remove(address);
+            for (int i = first; i < first + run; i++) {
+                stripes[i].space.free(stripes[i].space.getReseau(), stripePrefix);
+                stripes[i].largestFree = stripePrefix;
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private boolean allFree(int first, int run) {
+        for (int i = first; i < first + run; i++) {
+            if (stripes[i].largestFree != stripePrefix) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Always in index order, so two threads taking every lock cannot deadlock
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private int stripeIndex(int address) {
+        return (int) (Integer.toUnsignedLong(address - reseau) >>> (32 - stripePrefix));
+    }
+
+    // Spread threads over the stripes; a thread keeps its stripe while it has room
+    private int homeStripe() {
+        int h = Thread.currentThread().hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private static IllegalArgumentException notAllocated(int address, int prefix) {
+        return new IllegalArgumentException("Bloc non alloué (déjà libéré ?): " + Ipv4.toString(address) + "/" + prefix);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrentAddressPool{reseau='%s/%d', stripes=%d}",
+                             Ipv4.toString(reseau), masque, stripes.length);
+    }
+}
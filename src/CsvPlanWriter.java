@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CSV output for plans: one row per subnet, in input order or largest first.
+ * Fields containing a comma, a quote or a line break are quoted, with inner
+ * quotes doubled (RFC 4180). The header is written before the first plan.
+ * IPv6 rows use the same columns: the host counts are numbers of /64
+ * networks, the first host is the network address and there is no broadcast.
+ */
+public class CsvPlanWriter extends TextPlanWriter {
+    static final String[] COLUMNS = {
+        "Parent Network", "Subnet Name", "Required Hosts", "Network Address", "Prefix", "Subnet Mask",
+        "First Host", "Last Host", "Broadcast Address", "Available Hosts"
+    };
+
+    private final StringBuilder parent = new StringBuilder(20);
+    private boolean headerWritten;
+
+    public CsvPlanWriter(Writer out) {
+        this(out, false);
+    }
+
+    public CsvPlanWriter(Writer out, boolean bySize) {
+        super(out, bySize);
+    }
+
+    @Override
+    protected void startPlan(VlsmPlan plan) throws IOException {
+        writeHeader();
+        parent.setLength(0);
+        Ipv4.append(parent, plan.getReseau()).append('/').append(plan.getMasque());
+    }
+
+    @Override
+    protected void startPlan(Ipv6Plan plan) throws IOException {
+        writeHeader();
+        parent.setLength(0);
+        Ipv6.append(parent, plan.getReseau(), 0).append('/').append(plan.getMasque());
+    }
+
+    private void writeHeader() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        line.setLength(0);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) line.append(',');
+            appendField(line, COLUMNS[i]);
+        }
+        line.append('\n');
+        writeLine();
+        headerWritten = true;
+    }
+
+    @Override
+    protected void writeRow(VlsmPlan plan, Subnet subnet) throws IOException {
+        line.setLength(0);
+        line.append(parent).append(',');
+        appendField(line, subnet.getName());
+        line.append(',').append(subnet.getHotes()).append(',');
+        Ipv4.append(line, subnet.getReseau()).append(',').append(subnet.getMasque()).append(',');
+        Ipv4.append(line, Ipv4.maskBits(subnet.getMasque())).append(',');
+        Ipv4.append(line, subnet.getPremUtilisable()).append(',');
+        Ipv4.append(line, subnet.getDernUtilisable()).append(',');
+        Ipv4.append(line, subnet.getBroadcast()).append(',').append(subnet.getHotesDisponibles()).append('\n');
+        writeLine();
+    }
+
+    @Override
+    protected void writeRow(Ipv6Plan plan, int index) throws IOException {
+        int prefix = plan.getPrefix(index);
+        line.setLength(0);
+        line.append(parent).append(',');
+        appendField(line, plan.getName(index));
+        line.append(',').append(plan.getRequiredNetworks(index)).append(',');
+        Ipv6.append(line, plan.getNetwork(index), 0).append(',').append(prefix).append(',');
+        Ipv6.append(line, Ipv6.maskHigh(prefix), 0).append(',');
+        Ipv6.append(line, plan.getNetwork(index), 0).append(',');
+        Ipv6.append(line, plan.getLastNetwork(index), -1L).append(",,");
+        line.append(plan.getAvailableNetworks(index)).append('\n');
+        writeLine();
+    }
+
+    // Append a CSV field, quoting it only when needed
+    static StringBuilder appendField(StringBuilder sb, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,244 @@
+import java.util.Arrays;
+
+/**
+ * Address ranges the allocator must leave alone: gateways, ranges already in
+ * use, blocks held for future growth. Entries are single addresses, CIDR
+ * blocks or first-last ranges; they are sorted and merged once into disjoint
+ * ranges, so tens of thousands of them cost one sort. Before placing any
+ * subnet the allocator clips the ranges to its parent and cuts them into
+ * aligned blocks, then builds its BuddyAllocator with those blocks taken:
+ * the free lists start as exactly the complement, cut into the largest
+ * aligned blocks, so placement never probes around exclusions.
+ * Immutable and safe to share between threads.
+ */
+public final class Exclusions {
+    // Disjoint, non-adjacent ranges sorted by address, unsigned, ends included
+    private final long[] starts;
+    private final long[] ends;
+    private final long addresses;
+
+    private Exclusions(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+        long total = 0;
+        for (int i = 0; i < starts.length; i++) {
+            total += ends[i] - starts[i] + 1;
+        }
+        this.addresses = total;
+    }
+
+    /**
+     * Entries separated by commas, semicolons or white space, e.g.
+     * "10.0.0.1, 10.0.4.0/22, 10.1.0.10-10.1.0.99"; '#' starts a comment up to
+     * the end of the line, so a file with one entry per line can be passed as is.
+     */
+    public static Exclusions parse(CharSequence list) {
+        if (list == null) {
+            throw new IllegalArgumentException("Liste d'exclusions ne peut pas être null.");
+        }
+        long[] ranges = new long[16];
+        int count = 0;
+        int length = list.length();
+        int i = 0;
+        while (i < length) {
+            char c = list.charAt(i);
+            if (c == '#') {
+                while (i < length && list.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && !isSeparator(list.charAt(i)) && list.charAt(i) != '#') {
+                i++;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = parseEntry(list, start, i);
+        }
+        return merge(ranges, count);
+    }
+
+    // The blocks networks[i]/prefixes[i], which must be aligned on their size
+    public static Exclusions of(int[] networks, int[] prefixes) {
+        if (networks.length != prefixes.length) {
+            throw new IllegalArgumentException("Autant de préfixes que de réseaux attendus.");
+        }
+        long[] ranges = new long[networks.length];
+        for (int i = 0; i < networks.length; i++) {
+            if (prefixes[i] < 0 || prefixes[i] > 32 || (networks[i] & ~Ipv4.maskBits(prefixes[i])) != 0) {
+                throw new IllegalArgumentException("Bloc invalide: " + Ipv4.toString(networks[i]) + "/" + prefixes[i]);
+            }
+            ranges[i] = range(networks[i], networks[i] | ~Ipv4.maskBits(prefixes[i]));
+        }
+        return merge(ranges, ranges.length);
+    }
+
+    /**
+     * Ranges of exclusions (may be null) plus the aligned blocks, packed as in
+     * blocksIn(), e.g. those a stored plan was computed around.
+     */
+    static Exclusions union(Exclusions exclusions, long[] blocks) {
+        int existing = exclusions == null ? 0 : exclusions.starts.length;
+        long[] ranges = new long[existing + blocks.length];
+        for (int i = 0; i < existing; i++) {
+            ranges[i] = range((int) exclusions.starts[i], (int) exclusions.ends[i]);
+        }
+        for (int i = 0; i < blocks.length; i++) {
+            long start = blocks[i] >>> 6;
+            ranges[existing + i] = range((int) start, (int) (start + (1L << (32 - (int) (blocks[i] & 63))) - 1));
+        }
+        return merge(ranges, ranges.length);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';' || Character.isWhitespace(c);
+    }
+
+    // "a.b.c.d", "a.b.c.d/p" or "a.b.c.d-e.f.g.h", as a packed range
+    private static long parseEntry(CharSequence list, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = list.charAt(i);
+            if (c == '/') {
+                long address = Ipv4.parse(list, from, i);
+                int prefix = parsePrefix(list, i + 1, to);
+                if (address == Ipv4.INVALID || prefix < 0 || ((int) address & ~Ipv4.maskBits(prefix)) != 0) {
+                    throw invalid(list, from, to);
+                }
+                return range((int) address, (int) address | ~Ipv4.maskBits(prefix));
+            }
+            if (c == '-') {
+                long first = Ipv4.parse(list, from, i);
+                long last = Ipv4.parse(list, i + 1, to);
+                if (first == Ipv4.INVALID || last == Ipv4.INVALID || first > last) {
+                    throw invalid(list, from, to);
+                }
+                return range((int) first, (int) last);
+            }
+        }
+        long address = Ipv4.parse(list, from, to);
+        if (address == Ipv4.INVALID) {
+            throw invalid(list, from, to);
+        }
+        return range((int) address, (int) address);
+    }
+
+    // 0 to 32 in decimal, -1 otherwise
+    private static int parsePrefix(CharSequence list, int from, int to) {
+        if (to - from < 1 || to - from > 2) {
+            return -1;
+        }
+        int prefix = 0;
+        for (int i = from; i < to; i++) {
+            char c = list.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            prefix = prefix * 10 + (c - '0');
+        }
+        return prefix <= 32 ? prefix : -1;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence list, int from, int to) {
+        return new IllegalArgumentException("Plage exclue invalide: " + list.subSequence(from, to));
+    }
+
+    // First address in the upper half, last in the lower, sign bit flipped so a signed sort orders by first address
+    private static long range(int first, int last) {
+        return (((long) first << 32) | (last & 0xFFFFFFFFL)) ^ Long.MIN_VALUE;
+    }
+
+    // Sort the packed ranges, then merge overlapping and adjacent ones
+    private static Exclusions merge(long[] ranges, int count) {
+        Arrays.sort(ranges, 0, count);
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        int merged = 0;
+        for (int i = 0; i < count; i++) {
+            long range = ranges[i] ^ Long.MIN_VALUE;
+            long start = range >>> 32;
+            long end = range & 0xFFFFFFFFL;
+            if (merged > 0 && start <= ends[merged - 1] + 1) {
+                ends[merged - 1] = Math.max(ends[merged - 1], end);
+            } else {
+                starts[merged] = start;
+                ends[merged] = end;
+                merged++;
+            }
+        }
+        return new Exclusions(Arrays.copyOf(starts, merged), Arrays.copyOf(ends, merged));
+    }
+
+    // Number of disjoint ranges once merged
+    public int size() {
+        return starts.length;
+    }
+
+    // Addresses excluded, all parents together
+    public long getAddresses() {
+        return addresses;
+    }
+
+    public boolean contains(int address) {
+        long key = address & 0xFFFFFFFFL;
+        int range = floor(key);
+        return range >= 0 && key <= ends[range];
+    }
+
+    /**
+     * Excluded part of network/mask as aligned blocks, sorted by address and
+     * packed as (unsigned address << 6) | prefix, like VlsmPlan packs subnets.
+     */
+    long[] blocksIn(int network, int mask) {
+        long parentStart = network & Ipv4.maskBits(mask) & 0xFFFFFFFFL;
+        long parentEnd = parentStart + (1L << (32 - mask)) - 1;
+        long[] blocks = new long[16];
+        int count = 0;
+        int first = floor(parentStart);
+        if (first < 0 || ends[first] < parentStart) {
+            first++;
+        }
+        for (int i = first; i < starts.length && starts[i] <= parentEnd; i++) {
+            long start = Math.max(starts[i], parentStart);
+            long end = Math.min(ends[i], parentEnd);
+            // Largest aligned block at start that does not go past end, repeatedly
+            while (start <= end) {
+                long size = start == 0 ? 1L << 32 : Long.lowestOneBit(start);
+                while (start + size - 1 > end) {
+                    size >>>= 1;
+                }
+                if (count == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, count * 2);
+                }
+                blocks[count++] = (start << 6) | (32 - Long.numberOfTrailingZeros(size));
+                start += size;
+            }
+        }
+        return Arrays.copyOf(blocks, count);
+    }
+
+    // Last range starting at or before key, -1 if none
+    private int floor(long key) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exclusions{plages=%d, adresses=%d}", starts.length, addresses);
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.List;
+
+/**
+ * Exact capacity check of a set of requirements, without allocating.
+ * Each requirement takes one power-of-two block, network and broadcast
+ * included. Placed largest first, aligned blocks leave no hole, so the set
+ * fits in an empty /m parent exactly when no block is larger than the parent
+ * and the block sizes add up to at most 2^(32-m). Building the block counts
+ * per prefix length is O(n); every answer after that is O(1).
+ */
+public final class Feasibility {
+    // Number of blocks needed per prefix length
+    private final int[] blockCounts;
+    private final long requiredAddresses;
+    private final int largestBlockPrefix;
+
+    private Feasibility(int[] blockCounts, long requiredAddresses, int largestBlockPrefix) {
+        this.blockCounts = blockCounts;
+        this.requiredAddresses = requiredAddresses;
+        this.largestBlockPrefix = largestBlockPrefix;
+    }
+
+    public static Feasibility of(List<Subnet> requirements) {
+        if (requirements == null || requirements.isEmpty()) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        int[] counts = new int[33];
+        for (int i = 0; i < requirements.size(); i++) {
+            Subnet requirement = requirements.get(i);
+            if (requirement == null) {
+                throw new IllegalArgumentException("Subnet " + (i + 1) + " est null.");
+            }
+            counts[VlsmAllocator.prefixFor(requirement.getHotes())]++;
+        }
+        return fromCounts(counts);
+    }
+
+    // Same from bare host counts, e.g. when the parent is still to be chosen
+    public static Feasibility ofHosts(int[] hosts) {
+        if (hosts == null || hosts.length == 0) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        int[] counts = new int[33];
+        for (int hotes : hosts) {
+            counts[VlsmAllocator.prefixFor(hotes)]++;
+        }
+        return fromCounts(counts);
+    }
+
+    // From the number of blocks needed per prefix length (33 entries, /0 to /32)
+    public static Feasibility ofBlockCounts(int[] blockCounts) {
+        if (blockCounts == null || blockCounts.length != 33) {
+            throw new IllegalArgumentException("33 nombres de blocs attendus (/0 à /32).");
+        }
+        long total = 0;
+        for (int count : blockCounts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Nombre de blocs négatif: " + count);
+            }
+            total += count;
+        }
+        // Keeps the address sum below 2^63
+        if (total == 0 || total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Nombre de blocs invalide: " + total);
+        }
+        return fromCounts(blockCounts.clone());
+    }
+
+    private static Feasibility fromCounts(int[] counts) {
+        long required = 0;
+        int largest = -1;
+        for (int prefix = 32; prefix >= 0; prefix--) {
+            if (counts[prefix] > 0) {
+                required += (long) counts[prefix] << (32 - prefix);
+                largest = prefix;
+            }
+        }
+        return new Feasibility(counts, required, largest);
+    }
+
+    // Number of /prefix blocks the requirements need
+    public int getBlockCount(int prefix) {
+        return blockCounts[prefix];
+    }
+
+    // Addresses taken by the blocks, network and broadcast included
+    public long getRequiredAddresses() {
+        return requiredAddresses;
+    }
+
+    // Prefix length of the largest block needed
+    public int getLargestBlockPrefix() {
+        return largestBlockPrefix;
+    }
+
+    // True if the requirements fit in an empty /mask parent
+    public boolean fits(int mask) {
+        if (mask < 0 || mask > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + mask + ". Doit être entre 0 et 32.");
+        }
+        return largestBlockPrefix >= mask && requiredAddresses <= 1L << (32 - mask);
+    }
+
+    // Longest parent prefix that holds every block, -1 if they need more than the whole IPv4 space
+    public int getMinimumPrefix() {
+        // Smallest b with 2^b >= requiredAddresses
+        int bits = 64 - Long.numberOfLeadingZeros(requiredAddresses - 1);
+        if (bits > 32) {
+            return -1;
+        }
+        return Math.min(32 - bits, largestBlockPrefix);
+    }
+
+    /**
+     * Index of the first free supernet that can hold the requirements, -1 if
+     * none can. prefixes[i] is the prefix length of the i-th supernet (only
+     * the first count entries are read); a free aligned /p holds them exactly
+     * when p <= getMinimumPrefix(), and the parent to request is then the
+     * first /getMinimumPrefix() block of that supernet, at its own address.
+     */
+    public int findSupernet(int[] prefixes, int count) {
+        int minimum = getMinimumPrefix();
+        if (minimum < 0) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            if (prefixes[i] <= minimum) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same answer as fits(mask), as an exception giving the reason and the
+     * minimum prefix, so front ends can report it before allocating.
+     */
+    public void check(int mask) {
+        if (fits(mask)) {
+            return;
+        }
+        int minimum = getMinimumPrefix();
+        String needed = minimum < 0 ? "plus que l'espace IPv4 entier" : "masque /" + minimum + " au minimum";
+        if (largestBlockPrefix < mask) {
+            throw new IllegalArgumentException(
+                "Un subnet nécessite un masque /" + largestBlockPrefix +
+                " qui est moins restrictif que le masque original /" + mask + " (" + needed + ").");
+        }
+        throw new IllegalArgumentException(
+            "Espace d'adressage insuffisant: les subnets occupent " + requiredAddresses + " adresses, le réseau /" +
+            mask + " n'en contient que " + (1L << (32 - mask)) + " (" + needed + ").");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Feasibility{adresses=%d, plus grand bloc=/%d, minimum=/%d}",
+                             requiredAddresses, largestBlockPrefix, getMinimumPrefix());
+    }
+}
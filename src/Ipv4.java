@@ -0,0 +1,132 @@
+/**
+ * IPv4 dotted-quad codec.
+ * Parses a CharSequence straight to an int in a single pass (no split, no
+ * intermediate arrays) and writes addresses into a caller-supplied
+ * StringBuilder or byte[]. Parsing follows the same rules as VlsmCli.verif:
+ * four decimal octets 0-255, no empty octet, no leading zeros except "0",
+ * surrounding whitespace ignored.
+ */
+public final class Ipv4 {
+    // Returned by parse when the text is not a valid address
+    public static final long INVALID = -1L;
+
+    private Ipv4() {
+    }
+
+    // Parse the whole sequence; returns the address as an unsigned value or INVALID
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        return parse(text, 0, text.length());
+    }
+
+    // Parse text[start, end); returns the address as an unsigned value or INVALID
+    public static long parse(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        long address = 0;
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        boolean leadingZero = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (leadingZero || digits == 3) {
+                    return INVALID;
+                }
+                leadingZero = digits == 0 && c == '0';
+                value = value * 10 + (c - '0');
+                digits++;
+            } else if (c == '.') {
+                if (digits == 0 || value > 255 || octets == 3) {
+                    return INVALID;
+                }
+                address = (address << 8) | value;
+                octets++;
+                value = 0;
+                digits = 0;
+                leadingZero = false;
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0 || value > 255 || octets != 3) {
+            return INVALID;
+        }
+        return (address << 8) | value;
+    }
+
+    public static boolean isValid(CharSequence text) {
+        return parse(text) != INVALID;
+    }
+
+    // Parse or throw IllegalArgumentException
+    public static int parseAddress(CharSequence text) {
+        long address = parse(text);
+        if (address == INVALID) {
+            throw new IllegalArgumentException("Format d'adresse IP invalide: " + text);
+        }
+        return (int) address;
+    }
+
+    // Parse a dotted-decimal subnet mask to its prefix length, or -1 if the mask is not contiguous
+    public static int parseMask(CharSequence text) {
+        long mask = parse(text);
+        if (mask == INVALID) {
+            return -1;
+        }
+        int prefix = Integer.numberOfLeadingZeros(~(int) mask);
+        return maskBits(prefix) == (int) mask ? prefix : -1;
+    }
+
+    // Network mask for a prefix length, e.g. 24 -> 0xFFFFFF00
+    public static int maskBits(int prefix) {
+        return prefix == 0 ? 0 : -1 << (32 - prefix);
+    }
+
+    public static StringBuilder append(StringBuilder sb, int address) {
+        return sb.append(address >>> 24).append('.')
+                 .append((address >>> 16) & 0xFF).append('.')
+                 .append((address >>> 8) & 0xFF).append('.')
+                 .append(address & 0xFF);
+    }
+
+    // Write the address as ASCII into buf starting at offset; returns the offset after the last byte.
+    // buf needs room for 15 bytes.
+    public static int write(byte[] buf, int offset, int address) {
+        offset = writeOctet(buf, offset, address >>> 24);
+        buf[offset++] = '.';
+        offset = writeOctet(buf, offset, (address >>> 16) & 0xFF);
+        buf[offset++] = '.';
+        offset = writeOctet(buf, offset, (address >>> 8) & 0xFF);
+        buf[offset++] = '.';
+        return writeOctet(buf, offset, address & 0xFF);
+    }
+
+    private static int writeOctet(byte[] buf, int offset, int octet) {
+        if (octet >= 100) {
+            buf[offset++] = (byte) ('0' + octet / 100);
+            octet %= 100;
+            buf[offset++] = (byte) ('0' + octet / 10);
+        } else if (octet >= 10) {
+            buf[offset++] = (byte) ('0' + octet / 10);
+        }
+        buf[offset++] = (byte) ('0' + octet % 10);
+        return offset;
+    }
+
+    public static String toString(int address) {
+        return append(new StringBuilder(15), address).toString();
+    }
+
+    public static String maskToString(int prefix) {
+        return toString(maskBits(prefix));
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * IPv6 codec on two longs: the upper and lower 64 bits of the address.
+ * Parsing accepts the RFC 4291 text forms (full, "::" compressed, trailing
+ * dotted IPv4) in a single pass without splitting; formatting follows RFC
+ * 5952: lowercase, no leading zeros, the longest run of two or more zero
+ * groups (the first one on a tie) shortened to "::", and IPv4-mapped
+ * addresses written with a dotted tail. Zone indexes ("%eth0") are refused.
+ */
+public final class Ipv6 {
+
+    private Ipv6() {
+    }
+
+    // Parse the whole sequence into out[0] (upper 64 bits) and out[1] (lower 64 bits); false if invalid
+    public static boolean parse(CharSequence text, long[] out) {
+        return text != null && parse(text, 0, text.length(), out);
+    }
+
+    // Parse text[start, end) into out[0] and out[1]; false if invalid, out is then left unchanged
+    public static boolean parse(CharSequence text, int start, int end, long[] out) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+
+        // Groups before "::" end up in head, groups after it in the accumulator
+        long hi = 0;
+        long lo = 0;
+        int groups = 0;
+        long headHi = 0;
+        long headLo = 0;
+        int headGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (text.charAt(i) == ':') {
+            if (end - i < 2 || text.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = Character.digit(text.charAt(i), 16);
+                if (digit < 0 || text.charAt(i) > 'f') {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                // Dotted IPv4 tail: the last 32 bits
+                long v4 = Ipv4.parse(text, groupStart, end);
+                if (v4 == Ipv4.INVALID || headGroups + groups + 2 > (compressed ? 7 : 8)) {
+                    return false;
+                }
+                hi = (hi << 32) | (lo >>> 32);
+                lo = (lo << 32) | v4;
+                groups += 2;
+                i = end;
+                break;
+            }
+            int digits = i - groupStart;
+            if (digits == 0 || digits > 4 || headGroups + groups == 8) {
+                return false;
+            }
+            hi = (hi << 16) | (lo >>> 48);
+            lo = (lo << 16) | value;
+            groups++;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i++) != ':' || i == end) {
+                return false;
+            }
+            if (text.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                headHi = hi;
+                headLo = lo;
+                headGroups = groups;
+                hi = 0;
+                lo = 0;
+                groups = 0;
+                i++;
+            }
+        }
+
+        if (compressed) {
+            if (headGroups + groups > 7) {
+                return false;
+            }
+            // Move the head groups to the top, the tail stays at the bottom
+            int shift = 16 * (8 - headGroups);
+            if (headGroups > 0) {
+                out[0] = shiftLeftHigh(headHi, headLo, shift) | hi;
+                out[1] = shiftLeftLow(headLo, shift) | lo;
+            } else {
+                out[0] = hi;
+                out[1] = lo;
+            }
+            return true;
+        }
+        if (groups != 8) {
+            return false;
+        }
+        out[0] = hi;
+        out[1] = lo;
+        return true;
+    }
+
+    // Upper 64 bits of (hi, lo) << shift, 0 < shift < 128
+    private static long shiftLeftHigh(long hi, long lo, int shift) {
+        if (shift >= 64) {
+            return lo << (shift - 64);
+        }
+        return (hi << shift) | (lo >>> (64 - shift));
+    }
+
+    private static long shiftLeftLow(long lo, int shift) {
+        return shift >= 64 ? 0 : lo << shift;
+    }
+
+    public static boolean isValid(CharSequence text) {
+        return parse(text, new long[2]);
+    }
+
+    // Parse or throw IllegalArgumentException; returns {upper, lower}
+    public static long[] parseAddress(CharSequence text) {
+        long[] address = new long[2];
+        if (!parse(text, address)) {
+            throw new IllegalArgumentException("Format d'adresse IPv6 invalide: " + text);
+        }
+        return address;
+    }
+
+    // Upper 64 bits of the mask for a prefix length 0-128
+    public static long maskHigh(int prefix) {
+        return prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+    }
+
+    // Lower 64 bits of the mask for a prefix length 0-128
+    public static long maskLow(int prefix) {
+        return prefix <= 64 ? 0 : -1L << (128 - prefix);
+    }
+
+    public static StringBuilder append(StringBuilder sb, long hi, long lo) {
+        // IPv4-mapped ::ffff:a.b.c.d keeps its dotted tail (RFC 5952 section 5)
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL) {
+            return Ipv4.append(sb.append("::ffff:"), (int) lo);
+        }
+
+        // Longest run of at least two zero groups, the first one on a tie
+        int bestStart = -1;
+        int bestLength = 1;
+        int runStart = -1;
+        for (int g = 0; g <= 8; g++) {
+            if (g < 8 && group(hi, lo, g) == 0) {
+                if (runStart < 0) {
+                    runStart = g;
+                }
+            } else if (runStart >= 0) {
+                if (g - runStart > bestLength) {
+                    bestStart = runStart;
+                    bestLength = g - runStart;
+                }
+                runStart = -1;
+            }
+        }
+
+        for (int g = 0; g < 8; g++) {
+            if (g == bestStart) {
+                sb.append("::");
+                g += bestLength - 1;
+                continue;
+            }
+            if (g > 0 && g != bestStart + bestLength) {
+                sb.append(':');
+            }
+            appendHex(sb, group(hi, lo, g));
+        }
+        return sb;
+    }
+
+    private static int group(long hi, long lo, int index) {
+        long half = index < 4 ? hi : lo;
+        return (int) (half >>> (48 - 16 * (index & 3))) & 0xFFFF;
+    }
+
+    private static void appendHex(StringBuilder sb, int value) {
+        boolean started = false;
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            int digit = (value >>> shift) & 0xF;
+            if (digit != 0 || started || shift == 0) {
+                sb.append(Character.forDigit(digit, 16));
+                started = true;
+            }
+        }
+    }
+
+    public static String toString(long hi, long lo) {
+        return append(new StringBuilder(39), hi, lo).toString();
+    }
+
+    public static String maskToString(int prefix) {
+        return toString(maskHigh(prefix), maskLow(prefix));
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.List;
+
+/**
+ * IPv6 VLSM allocation, e.g. a /48 carved into /56 and /64 blocks.
+ * Requirements are counted in /64 networks (the host count of each Subnet);
+ * a requirement of n gets the smallest block holding n /64s, so the parent
+ * prefix must be /64 or shorter. Blocks are sorted largest first with a
+ * counting sort on their prefix, then packed back to back from the start of
+ * the parent: with sizes never growing, each block is aligned on its own
+ * size, as the buddy allocator would place them. Everything is in O(n) on
+ * the upper 64 bits of the addresses, so millions of /64s are no problem.
+ */
+public final class Ipv6Allocator {
+    private static final int PROGRESS_STEP = 4096;
+
+    private Ipv6Allocator() {
+    }
+
+    public static Ipv6Plan allocate(String networkAddress, int mask, List<Subnet> requirements) {
+        if (networkAddress == null || networkAddress.trim().isEmpty()) {
+            throw new IllegalArgumentException("Adresse réseau ne peut pas être null ou vide.");
+        }
+        return allocate(Ipv6.parseAddress(networkAddress)[0], mask, requirements, null);
+    }
+
+    /**
+     * Allocate under the parent whose upper 64 bits are network (its host bits
+     * are cleared). Progress and interruption work as in VlsmAllocator.
+     */
+    public static Ipv6Plan allocate(long network, int mask, List<Subnet> requirements,
+                                    VlsmAllocator.ProgressListener listener) {
+        if (mask < 1 || mask > 64) {
+            throw new IllegalArgumentException("Préfixe IPv6 invalide: /" + mask + ". Doit être entre 1 et 64.");
+        }
+        if (requirements == null || requirements.isEmpty()) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        network &= Ipv6.maskHigh(mask);
+
+        // Counting sort on the prefix: largest blocks first, input order within a size
+        int n = requirements.size();
+        Subnet[] subnets = requirements.toArray(new Subnet[0]);
+        byte[] prefixes = new byte[n];
+        int[] starts = new int[66];
+        long totalRequired = 0;
+        for (int i = 0; i < n; i++) {
+            Subnet requirement = subnets[i];
+            if (requirement == null) {
+                throw new IllegalArgumentException("Subnet " + (i + 1) + " est null.");
+            }
+            int prefix = prefixFor(requirement.getHotes());
+            if (prefix < mask) {
+                throw new AllocationException(
+                    "Le subnet '" + requirement.getName() + "' nécessite un préfixe /" + prefix +
+                    " qui est moins restrictif que le préfixe original /" + mask, i, requirement);
+            }
+            prefixes[i] = (byte) prefix;
+            starts[prefix + 1]++;
+            totalRequired += requirement.getHotes();
+        }
+        for (int p = 1; p < starts.length; p++) {
+            starts[p] += starts[p - 1];
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[starts[prefixes[i]]++] = i;
+        }
+
+        long capacity = 1L << (64 - mask);
+        long[] networks = new long[n];
+        long used = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                VlsmAllocator.checkProgress(listener, i, n);
+            }
+            int index = order[i];
+            long size = 1L << (64 - prefixes[index]);
+            // Unsigned: a /1 parent holds 2^63 /64s
+            if (Long.compareUnsigned(used + size, capacity) > 0) {
+                Subnet requirement = subnets[index];
+                throw new AllocationException(
+                    "Espace d'adressage insuffisant pour le subnet '" + requirement.getName() + "' (/" +
+                    prefixes[index] + ", " + size + " réseaux /64). Disponible: " +
+                    Long.toUnsignedString(capacity - used) + " réseaux /64.", index, requirement);
+            }
+            networks[index] = network + used;
+            used += size;
+        }
+        if (listener != null) {
+            listener.progress(n, n);
+        }
+        return new Ipv6Plan(network, mask, subnets, networks, prefixes, order, totalRequired, used);
+    }
+
+    // Prefix of the smallest block holding count /64 networks
+    static int prefixFor(int count) {
+        if (count <= 0 || count > Subnet.MAX_HOTES) {
+            throw new IllegalArgumentException("Nombre de réseaux /64 invalide: " + count);
+        }
+        return 64 - (32 - Integer.numberOfLeadingZeros(count - 1));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Immutable result of an IPv6 allocation.
+ * Every block is a /64 or larger, so only the upper 64 bits of each network
+ * are stored, in columns: network and prefix per requirement (input order),
+ * plus the allocation order (largest block first) as an index array.
+ * The requirement's host count is the number of /64 networks it needs.
+ */
+public final class Ipv6Plan {
+    private final long reseau;
+    private final int masque;
+    private final Subnet[] requirements;
+    private final long[] networks;
+    private final byte[] prefixes;
+    private final int[] allocationOrder;
+    private final long totalRequiredNetworks;
+    private final long usedNetworks;
+
+    Ipv6Plan(long reseau, int masque, Subnet[] requirements, long[] networks, byte[] prefixes,
+             int[] allocationOrder, long totalRequiredNetworks, long usedNetworks) {
+        this.reseau = reseau;
+        this.masque = masque;
+        this.requirements = requirements;
+        this.networks = networks;
+        this.prefixes = prefixes;
+        this.allocationOrder = allocationOrder;
+        this.totalRequiredNetworks = totalRequiredNetworks;
+        this.usedNetworks = usedNetworks;
+    }
+
+    // Upper 64 bits of the parent network
+    public long getReseau() {
+        return reseau;
+    }
+
+    public String getAddresseReseau() {
+        return Ipv6.toString(reseau, 0);
+    }
+
+    public int getMasque() {
+        return masque;
+    }
+
+    public int size() {
+        return networks.length;
+    }
+
+    // Row index in input order of the subnet at the given position in allocation order
+    public int indexBySize(int position) {
+        return allocationOrder[position];
+    }
+
+    public String getName(int index) {
+        return requirements[index].getName();
+    }
+
+    // Number of /64 networks requested
+    public int getRequiredNetworks(int index) {
+        return requirements[index].getHotes();
+    }
+
+    // Upper 64 bits of the subnet's network address
+    public long getNetwork(int index) {
+        return networks[index];
+    }
+
+    public int getPrefix(int index) {
+        return prefixes[index];
+    }
+
+    // Number of /64 networks in the block
+    public long getAvailableNetworks(int index) {
+        return 1L << (64 - prefixes[index]);
+    }
+
+    // Upper 64 bits of the last address of the block (the lower 64 bits are all ones)
+    public long getLastNetwork(int index) {
+        return networks[index] + getAvailableNetworks(index) - 1;
+    }
+
+    public long getTotalRequiredNetworks() {
+        return totalRequiredNetworks;
+    }
+
+    // /64 networks taken by the blocks
+    public long getUsedNetworks() {
+        return usedNetworks;
+    }
+
+    // /64 networks in the parent, unsigned (2^63 for a /1)
+    public long getAvailableNetworks() {
+        return 1L << (64 - masque);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ipv6Plan{reseau='%s/%d', subnets=%d, /64 utilises=%d/%s}", getAddresseReseau(),
+                             masque, networks.length, usedNetworks, Long.toUnsignedString(getAvailableNetworks()));
+    }
+}
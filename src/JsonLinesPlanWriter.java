@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON Lines output for plans: one object per subnet, in input order or largest first.
+ * For IPv6 plans "hosts" and "available" count /64 networks and there is no "broadcast".
+ */
+public class JsonLinesPlanWriter extends TextPlanWriter {
+    private final StringBuilder parent = new StringBuilder(20);
+
+    public JsonLinesPlanWriter(Writer out) {
+        this(out, false);
+    }
+
+    public JsonLinesPlanWriter(Writer out, boolean bySize) {
+        super(out, bySize);
+    }
+
+    @Override
+    protected void startPlan(VlsmPlan plan) {
+        parent.setLength(0);
+        Ipv4.append(parent, plan.getReseau()).append('/').append(plan.getMasque());
+    }
+
+    @Override
+    protected void startPlan(Ipv6Plan plan) {
+        parent.setLength(0);
+        Ipv6.append(parent, plan.getReseau(), 0).append('/').append(plan.getMasque());
+    }
+
+    @Override
+    protected void writeRow(VlsmPlan plan, Subnet subnet) throws IOException {
+        line.setLength(0);
+        line.append("{\"parent\":\"").append(parent);
+        line.append("\",\"name\":");
+        Json.quote(line, subnet.getName());
+        line.append(",\"hosts\":").append(subnet.getHotes());
+        line.append(",\"network\":\"");
+        Ipv4.append(line, subnet.getReseau());
+        line.append("\",\"prefix\":").append(subnet.getMasque());
+        line.append(",\"first\":\"");
+        Ipv4.append(line, subnet.getPremUtilisable());
+        line.append("\",\"last\":\"");
+        Ipv4.append(line, subnet.getDernUtilisable());
+        line.append("\",\"broadcast\":\"");
+        Ipv4.append(line, subnet.getBroadcast());
+        line.append("\",\"available\":").append(subnet.getHotesDisponibles()).append("}\n");
+        writeLine();
+    }
+
+    @Override
+    protected void writeRow(Ipv6Plan plan, int index) throws IOException {
+        line.setLength(0);
+        line.append("{\"parent\":\"").append(parent);
+        line.append("\",\"name\":");
+        Json.quote(line, plan.getName(index));
+        line.append(",\"hosts\":").append(plan.getRequiredNetworks(index));
+        line.append(",\"network\":\"");
+        Ipv6.append(line, plan.getNetwork(index), 0);
+        line.append("\",\"prefix\":").append(plan.getPrefix(index));
+        line.append(",\"first\":\"");
+        Ipv6.append(line, plan.getNetwork(index), 0);
+        line.append("\",\"last\":\"");
+        Ipv6.append(line, plan.getLastNetwork(index), -1L);
+        line.append("\",\"available\":").append(plan.getAvailableNetworks(index)).append("}\n");
+        writeLine();
+    }
+}
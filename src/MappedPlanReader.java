@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads plan files written by BinaryPlanWriter through memory mapping.
+ * Opening a file only checks the section headers; rows are read from the
+ * mapped columns on access, so even a plan of millions of subnets is
+ * available at once without parsing. Names are decoded when asked for.
+ */
+public final class MappedPlanReader {
+    private final List<MappedPlan> plans;
+
+    private MappedPlanReader(List<MappedPlan> plans) {
+        this.plans = plans;
+    }
+
+    public static MappedPlanReader open(Path file) throws IOException {
+        List<MappedPlan> plans = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            int maxHeader = BinaryPlanWriter.headerSize(BinaryPlanWriter.EXCLUSIONS_VERSION);
+            ByteBuffer header = ByteBuffer.allocate(maxHeader).order(ByteOrder.LITTLE_ENDIAN);
+            while (position < fileSize) {
+                header.clear();
+                header.limit((int) Math.min(maxHeader, fileSize - position));
+                if (fileSize - position >= BinaryPlanWriter.HEADER_SIZE) {
+                    while (header.hasRemaining()) {
+                        channel.read(header, position + header.position());
+                    }
+                }
+                long size = checkHeader(header, 0, fileSize - position, file, position);
+                MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                plans.add(new MappedPlan(section.order(ByteOrder.LITTLE_ENDIAN)));
+                position += size;
+            }
+        }
+        // The mappings stay valid after the channel is closed
+        return new MappedPlanReader(Collections.unmodifiableList(plans));
+    }
+
+    /**
+     * Same reader over plan data already in memory, e.g. a whole file read at
+     * once when it must not stay mapped (a mapped file cannot be replaced on
+     * every platform).
+     */
+    static MappedPlanReader wrap(ByteBuffer data, Object source) throws IOException {
+        List<MappedPlan> plans = new ArrayList<>();
+        int position = data.position();
+        while (position < data.limit()) {
+            ByteBuffer section = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            section.position(position);
+            long size = checkHeader(section, position, data.limit() - position, source, position);
+            section.limit(position + (int) size);
+            plans.add(new MappedPlan(section.slice().order(ByteOrder.LITTLE_ENDIAN)));
+            position += (int) size;
+        }
+        return new MappedPlanReader(Collections.unmodifiableList(plans));
+    }
+
+    // Validate the section header at offset in buffer; returns the section size
+    private static long checkHeader(ByteBuffer buffer, int offset, long remaining, Object source, long position)
+            throws IOException {
+        if (remaining < BinaryPlanWriter.HEADER_SIZE) {
+            throw invalid(source, position, "en-tête tronqué");
+        }
+        if (buffer.getInt(offset) != BinaryPlanWriter.MAGIC) {
+            throw invalid(source, position, "signature absente");
+        }
+        short version = buffer.getShort(offset + 4);
+        if (version != BinaryPlanWriter.VERSION && version != BinaryPlanWriter.EXCLUSIONS_VERSION) {
+            throw invalid(source, position, "version " + version + " non supportée");
+        }
+        if (remaining < BinaryPlanWriter.headerSize(version)) {
+            throw invalid(source, position, "en-tête tronqué");
+        }
+        int masque = buffer.getInt(offset + 12);
+        int rows = buffer.getInt(offset + 16);
+        int namesLength = buffer.getInt(offset + 20);
+        int excludedBlocks = version == BinaryPlanWriter.VERSION ? 0 : buffer.getInt(offset + 24);
+        if (masque < 0 || masque > 32 || rows < 0 || namesLength < 0 || excludedBlocks < 0) {
+            throw invalid(source, position, "en-tête incohérent");
+        }
+        long size = BinaryPlanWriter.sectionSize(version, rows, namesLength, excludedBlocks);
+        if (size > Integer.MAX_VALUE || size > remaining) {
+            throw invalid(source, position, "section tronquée");
+        }
+        return size;
+    }
+
+    private static IOException invalid(Object source, long position, String reason) {
+        return new IOException("Fichier de plan invalide " + source + " (octet " + position + "): " + reason);
+    }
+
+    public int planCount() {
+        return plans.size();
+    }
+
+    public MappedPlan getPlan(int index) {
+        return plans.get(index);
+    }
+
+    public List<MappedPlan> getPlans() {
+        return plans;
+    }
+
+    /**
+     * One plan of the file, with column access to its rows (input order).
+     */
+    public static final class MappedPlan {
+        private final ByteBuffer data;
+        private final int reseau;
+        private final int masque;
+        private final int rows;
+        private final int networksStart;
+        private final int hostsStart;
+        private final int offsetsStart;
+        private final int prefixStart;
+        private final int namesStart;
+        private final int namesLength;
+        private final int excludedStart;
+        private final int excludedBlocks;
+
+        // data starts at the section header
+        private MappedPlan(ByteBuffer data) {
+            this.data = data;
+            short version = data.getShort(4);
+            this.reseau = data.getInt(8);
+            this.masque = data.getInt(12);
+            this.rows = data.getInt(16);
+            this.networksStart = BinaryPlanWriter.headerSize(version);
+            this.hostsStart = networksStart + 4 * rows;
+            this.offsetsStart = hostsStart + 4 * rows;
+            this.prefixStart = offsetsStart + 4 * (rows + 1);
+            this.namesStart = prefixStart + rows;
+            this.namesLength = data.getInt(20);
+            this.excludedStart = (namesStart + namesLength + 7) & ~7;
+            this.excludedBlocks = version == BinaryPlanWriter.VERSION ? 0 : data.getInt(24);
+        }
+
+        public int getReseau() {
+            return reseau;
+        }
+
+        public int getMasque() {
+            return masque;
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        // Network address of the subnet in row
+        public int getNetwork(int row) {
+            return data.getInt(networksStart + 4 * checkRow(row));
+        }
+
+        public int getHosts(int row) {
+            return data.getInt(hostsStart + 4 * checkRow(row));
+        }
+
+        public int getPrefix(int row) {
+            return data.get(prefixStart + checkRow(row));
+        }
+
+        public String getName(int row) {
+            int start = data.getInt(offsetsStart + 4 * checkRow(row));
+            int end = data.getInt(offsetsStart + 4 * row + 4);
+            // Offsets come from the file: a corrupt one must not read outside the names block
+            if (start < 0 || start > end || end > namesLength) {
+                throw new IllegalArgumentException("Nom de la ligne " + row + " hors du bloc des noms.");
+            }
+            byte[] bytes = new byte[end - start];
+            data.get(namesStart + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Rebuild the full plan, checking it the way the allocator builds one:
+         * every subnet aligned on its size, large enough for its hosts and
+         * inside the parent, and no two blocks (excluded ones included)
+         * overlapping; IllegalArgumentException otherwise. The allocation
+         * order is recomputed the way VlsmAllocator sorts.
+         */
+        public VlsmPlan toPlan() {
+            long[] excluded = getExcludedBlocks();
+            int parent = reseau & Ipv4.maskBits(masque);
+            Subnet[] subnets = new Subnet[rows];
+            // Every block packed as (unsigned address << 6) | prefix, sorted below to find overlaps
+            long[] blocks = Arrays.copyOf(excluded, excluded.length + rows);
+            long usedAddresses = 0;
+            for (int i = 0; i < rows; i++) {
+                Subnet subnet = new Subnet(getName(i), getHosts(i), getNetwork(i), getPrefix(i));
+                if (subnet.getMasque() < masque || (subnet.getReseau() & Ipv4.maskBits(masque)) != parent) {
+                    throw new IllegalArgumentException("Subnet '" + subnet.getName() + "' hors du réseau parent.");
+                }
+                if (subnet.getMasque() > VlsmAllocator.prefixFor(subnet.getHotes())) {
+                    throw new IllegalArgumentException("Subnet '" + subnet.getName() + "' trop petit pour "
+                                                       + subnet.getHotes() + " hôtes.");
+                }
+                blocks[excluded.length + i] = (Integer.toUnsignedLong(subnet.getReseau()) << 6) | subnet.getMasque();
+                usedAddresses += subnet.getTaille();
+                subnets[i] = subnet;
+            }
+            Arrays.sort(blocks);
+            long end = 0;
+            for (long block : blocks) {
+                if (block >>> 6 < end) {
+                    throw new IllegalArgumentException("Blocs qui se chevauchent: " + Ipv4.toString((int) (block >>> 6))
+                                                       + "/" + (block & 63));
+                }
+                end = (block >>> 6) + (1L << (32 - (int) (block & 63)));
+            }
+            List<Subnet> list = Arrays.asList(subnets);
+            return new VlsmPlan(reseau, masque, subnets, VlsmAllocator.allocationOrder(list),
+                                VlsmAllocator.totalHosts(list), usedAddresses, excluded);
+        }
+
+        /**
+         * Blocks the plan was computed around, packed as (unsigned address << 6)
+         * | prefix and sorted; checked to be aligned, disjoint and in the parent.
+         */
+        long[] getExcludedBlocks() {
+            long[] blocks = new long[excludedBlocks];
+            long parentStart = reseau & Ipv4.maskBits(masque) & 0xFFFFFFFFL;
+            long cursor = parentStart;
+            for (int i = 0; i < excludedBlocks; i++) {
+                long block = data.getLong(excludedStart + 8 * i);
+                long start = block >>> 6;
+                int prefix = (int) (block & 63);
+                if (prefix < masque || prefix > 32 || start < cursor || (start & ~Ipv4.maskBits(prefix)) != 0
+                        || start + (1L << (32 - prefix)) > parentStart + (1L << (32 - masque))) {
+                    throw new IllegalArgumentException("Bloc exclu " + i + " invalide.");
+                }
+                blocks[i] = block;
+                cursor = start + (1L << (32 - prefix));
+            }
+            return blocks;
+        }
+
+        private int checkRow(int row) {
+            if (row < 0 || row >= rows) {
+                throw new IndexOutOfBoundsException("Ligne " + row + " hors du plan (" + rows + " lignes).");
+            }
+            return row;
+        }
+    }
+}
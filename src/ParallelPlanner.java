@@ -0,0 +1,185 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many independent plans (one parent network each) in parallel on a
+ * ForkJoin pool. Results come back in input order and a failing job only
+ * records its own error; the other jobs are not affected.
+ */
+public final class ParallelPlanner {
+    // Below this many jobs a task solves its range directly
+    private static final int MIN_SPLIT = 4;
+
+    private ParallelPlanner() {
+    }
+
+    /**
+     * One plan to compute: a parent network, its requirements and the
+     * ranges to leave out of it, if any. The network is kept parsed, so
+     * solving a job never goes back to text.
+     */
+    public static final class Job {
+        private final int network;
+        private final int mask;
+        private final List<Subnet> requirements;
+        private final Exclusions exclusions;
+
+        public Job(int network, int mask, List<Subnet> requirements) {
+            this(network, mask, requirements, null);
+        }
+
+        public Job(int network, int mask, List<Subnet> requirements, Exclusions exclusions) {
+            this.network = network;
+            this.mask = mask;
+            this.requirements = requirements;
+            this.exclusions = exclusions;
+        }
+
+        // Job for a dotted-decimal parent; IllegalArgumentException if the address is invalid
+        public static Job of(String networkAddress, int mask, List<Subnet> requirements) {
+            return new Job(Ipv4.parseAddress(networkAddress), mask, requirements, null);
+        }
+
+        // Parent address, host bits not necessarily cleared
+        public int getNetwork() {
+            return network;
+        }
+
+        public int getMask() {
+            return mask;
+        }
+
+        public List<Subnet> getRequirements() {
+            return requirements;
+        }
+
+        // May be null
+        public Exclusions getExclusions() {
+            return exclusions;
+        }
+    }
+
+    /**
+     * Outcome of one job: the plan, or the error that stopped it.
+     */
+    public static final class Result {
+        private final Job job;
+        private final VlsmPlan plan;
+        private final RuntimeException error;
+
+        private Result(Job job, VlsmPlan plan, RuntimeException error) {
+            this.job = job;
+            this.plan = plan;
+            this.error = error;
+        }
+
+        public Job getJob() {
+            return job;
+        }
+
+        public boolean isSuccess() {
+            return plan != null;
+        }
+
+        // The plan, or null if the job failed
+        public VlsmPlan getPlan() {
+            return plan;
+        }
+
+        // The error, or null if the job succeeded
+        public RuntimeException getError() {
+            return error;
+        }
+    }
+
+    public static List<Result> solve(List<Job> jobs) {
+        return solve(jobs, ForkJoinPool.commonPool());
+    }
+
+    public static List<Result> solve(List<Job> jobs, ForkJoinPool pool) {
+        return solve(jobs, pool, null);
+    }
+
+    // Same, serving repeated plan shapes from cache (may be null)
+    public static List<Result> solve(List<Job> jobs, ForkJoinPool pool, PlanCache cache) {
+        return solve(jobs, pool, cache, StandardPlacement.FIRST_FIT);
+    }
+
+    /**
+     * Same, placing blocks with strategy. The cache is only used with the
+     * strategies whose layouts it holds, see PlanCache.serves().
+     */
+    public static List<Result> solve(List<Job> jobs, ForkJoinPool pool, PlanCache cache, PlacementStrategy strategy) {
+        if (jobs == null || jobs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Job[] input = jobs.toArray(new Job[0]);
+        Result[] results = new Result[input.length];
+        // Aim for a few tasks per worker so uneven plan sizes still balance out
+        int threshold = Math.max(MIN_SPLIT, input.length / (pool.getParallelism() * 8));
+        if (!PlanCache.serves(strategy)) {
+            cache = null;
+        }
+        pool.invoke(new SolveTask(input, results, cache, strategy, 0, input.length, threshold));
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    static Result solveOne(Job job, PlanCache cache, PlacementStrategy strategy) {
+        try {
+            if (job == null) {
+                throw new IllegalArgumentException("Job null.");
+            }
+            if (job.mask < 0 || job.mask > 32) {
+                throw new IllegalArgumentException("Masque invalide: " + job.mask + ". Doit être entre 0 et 32.");
+            }
+            int network = job.network & Ipv4.maskBits(job.mask);
+            // Cached layouts assume an empty parent
+            if (cache == null || job.exclusions != null) {
+                return new Result(job, VlsmAllocator.allocate(network, job.mask, job.requirements,
+                                                              job.exclusions, strategy, null), null);
+            }
+            return new Result(job, cache.allocate(network, job.mask, job.requirements), null);
+        } catch (RuntimeException e) {
+            return new Result(job, null, e);
+        }
+    }
+
+    private static final class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Job[] jobs;
+        private final Result[] results;
+        private final PlanCache cache;
+        private final PlacementStrategy strategy;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SolveTask(Job[] jobs, Result[] results, PlanCache cache, PlacementStrategy strategy,
+                  int from, int to, int threshold) {
+            this.jobs = jobs;
+            this.results = results;
+            this.cache = cache;
+            this.strategy = strategy;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    results[i] = solveOne(jobs[i], cache, strategy);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SolveTask(jobs, results, cache, strategy, from, middle, threshold),
+                      new SolveTask(jobs, results, cache, strategy, middle, to, threshold));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import java.util.List;
+
+/**
+ * Decides where the allocator puts each block: the order in which the
+ * requirements are placed and which free block each one is carved from.
+ * Blocks are always aligned on their own size, so a strategy only changes
+ * which aligned block a subnet gets, and thus how the free space left is
+ * fragmented. See StandardPlacement for the built-in strategies.
+ */
+public interface PlacementStrategy {
+
+    // Short name used on the command line, e.g. "best-fit"
+    String getName();
+
+    /**
+     * Indexes of the requirements in the order they are placed. bySize is
+     * the allocation order (largest first, input order among equals) and may
+     * be returned as is.
+     */
+    int[] placementOrder(List<Subnet> requirements, int[] bySize);
+
+    // Take a free /prefix block from space; its address as an unsigned value, or -1 if nothing fits
+    long place(BuddyAllocator space, int prefix);
+}
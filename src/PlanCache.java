@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded memo of plan layouts.
+ * A plan only depends on the parent prefix length and on how many blocks of
+ * each prefix the requirements need; the parent address is just an offset.
+ * So layouts are cached as block offsets from the parent, in allocation
+ * order, keyed by (parent prefix, block count per prefix). A hit rebases the
+ * offsets onto the requested parent in O(n) without running the allocator.
+ * Entries are evicted least recently used first, once the cached layouts
+ * hold more than maxSubnets subnets in total. Safe for concurrent use.
+ */
+public final class PlanCache {
+    private final long maxSubnets;
+    private final LinkedHashMap<Key, int[]> layouts = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedSubnets;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PlanCache(long maxSubnets) {
+        if (maxSubnets <= 0) {
+            throw new IllegalArgumentException("Taille de cache invalide: " + maxSubnets);
+        }
+        this.maxSubnets = maxSubnets;
+    }
+
+    /**
+     * Whether cached layouts are the ones strategy would compute: they are
+     * placed largest first on an empty parent, where every StandardPlacement
+     * gives the same plan. Other strategies must not use the cache.
+     */
+    static boolean serves(PlacementStrategy strategy) {
+        return strategy instanceof StandardPlacement;
+    }
+
+    /**
+     * Same result as VlsmAllocator.allocate(network, mask, requirements),
+     * served from the cache when a plan with the same shape was computed before.
+     */
+    public VlsmPlan allocate(int network, int mask, List<Subnet> requirements) {
+        if (requirements == null || requirements.isEmpty()) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        if (mask < 0 || mask > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + mask + ". Doit être entre 0 et 32.");
+        }
+        if ((network & ~Ipv4.maskBits(mask)) != 0) {
+            throw new IllegalArgumentException("Adresse réseau invalide: " + Ipv4.toString(network) + "/" + mask);
+        }
+        int[] order = VlsmAllocator.allocationOrder(requirements);
+        int[] counts = new int[33];
+        for (int i = 0; i < requirements.size(); i++) {
+            counts[VlsmAllocator.prefixFor(requirements.get(i).getHotes())]++;
+        }
+        Key key = new Key(mask, counts);
+
+        int[] offsets = lookup(key);
+        if (offsets == null) {
+            VlsmPlan plan = VlsmAllocator.allocate(network, mask, requirements);
+            offsets = new int[plan.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = plan.getBySize(i).getReseau() - network;
+            }
+            store(key, offsets);
+            return plan;
+        }
+
+        // Rebase: same blocks in the same order, shifted to this parent
+        Subnet[] allocated = new Subnet[order.length];
+        long usedAddresses = 0;
+        for (int i = 0; i < order.length; i++) {
+            Subnet requirement = requirements.get(order[i]);
+            int prefix = VlsmAllocator.prefixFor(requirement.getHotes());
+            allocated[order[i]] = requirement.allocate(network + offsets[i], prefix);
+            usedAddresses += 1L << (32 - prefix);
+        }
+        return new VlsmPlan(network, mask, allocated, order, VlsmAllocator.totalHosts(requirements), usedAddresses);
+    }
+
+    private synchronized int[] lookup(Key key) {
+        int[] offsets = layouts.get(key);
+        if (offsets == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return offsets;
+    }
+
+    private synchronized void store(Key key, int[] offsets) {
+        if (offsets.length > maxSubnets) {
+            return;
+        }
+        int[] replaced = layouts.put(key, offsets);
+        cachedSubnets += offsets.length - (replaced == null ? 0 : replaced.length);
+        Iterator<int[]> eldest = layouts.values().iterator();
+        while (cachedSubnets > maxSubnets) {
+            cachedSubnets -= eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Number of cached layouts
+    public synchronized int size() {
+        return layouts.size();
+    }
+
+    // Subnets held by the cached layouts
+    public synchronized long getCachedSubnets() {
+        return cachedSubnets;
+    }
+
+    public synchronized void clear() {
+        layouts.clear();
+        cachedSubnets = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PlanCache{plans=%d, subnets=%d/%d, hits=%d, misses=%d, evictions=%d}",
+                             layouts.size(), cachedSubnets, maxSubnets, hits, misses, evictions);
+    }
+
+    // Parent prefix length and number of blocks needed per prefix length
+    private static final class Key {
+        private final int mask;
+        private final int[] counts;
+        private final int hash;
+
+        Key(int mask, int[] counts) {
+            this.mask = mask;
+            this.counts = counts;
+            this.hash = 31 * mask + Arrays.hashCode(counts);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return mask == key.mask && Arrays.equals(counts, key.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
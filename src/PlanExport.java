@@ -0,0 +1,64 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens export files for the plan writers: buffered UTF-8 over a file
+ * channel stream, gzip-compressed when the file name ends with ".gz".
+ * The format follows the extension: .vlsp is the binary format, .jsonl
+ * JSON Lines, anything else CSV. The binary format is never compressed:
+ * MappedPlanReader maps the file as it is on disk.
+ */
+final class PlanExport {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private PlanExport() {
+    }
+
+    static final String BINARY_EXTENSION = ".vlsp";
+    static final String JSON_LINES_EXTENSION = ".jsonl";
+
+    static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    static OutputStream openStream(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        return isGzip(file) ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    // Stream for a binary plan file; IllegalArgumentException for a .gz name, which could not be read back
+    static OutputStream openBinaryStream(Path file) throws IOException {
+        if (isGzip(file)) {
+            throw new IllegalArgumentException("Le format binaire ne peut pas être compressé (" + file.getFileName()
+                                               + "): MappedPlanReader ne lit que les fichiers non compressés.");
+        }
+        return Files.newOutputStream(file);
+    }
+
+    static Writer openWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(openStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // Writer for the format matching the file name; bySize orders text rows largest first
+    static PlanWriter openPlanWriter(Path file, boolean bySize) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(BINARY_EXTENSION)) {
+            return new BinaryPlanWriter(openBinaryStream(file));
+        }
+        if (name.endsWith(JSON_LINES_EXTENSION)) {
+            return new JsonLinesPlanWriter(openWriter(file), bySize);
+        }
+        return new CsvPlanWriter(openWriter(file), bySize);
+    }
+}
@@ -0,0 +1,509 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Local HTTP/JSON planning service on the JDK's built-in HTTP server.
+ * Every endpoint takes a JSON body (POST) and shares the allocation code of
+ * the GUI and the CLI:
+ *   /plan         {"network": "10.0.0.0/16", "subnets": [{"name": "a", "hosts": 50}, ...],
+ *                  "strategy": "first-fit" (default), "exclude": "10.0.0.1, 10.0.8.0/22" or [...]}
+ *                 -> the plan as one JSON object, "largestFreePrefix" being the largest
+ *                 aligned free block; the strategies only differ around exclusions
+ *   /plans        {"plans": [plan request, ...]} -> {"results": [plan or {"error": ...}, ...]},
+ *                 the IPv4 plans solved in parallel by ParallelPlanner
+ *   /feasibility  {"network": "10.0.0.0/16" (optional), "hosts": [50, ...] or "subnets": [...]}
+ *   /export?format=csv|jsonl|bin  plan request -> the plan file, as the batch mode writes it
+ * IPv6 parents work as in the batch mode ("hosts" are /64 networks).
+ * Requests run on virtual threads when the JVM has them (JDK 21+), on a
+ * fixed pool otherwise; the build targets release 17, so the virtual thread
+ * executor is looked up by reflection. Repeated plan shapes are served from
+ * a shared PlanCache. Errors come back as {"error": "..."} with status 400,
+ * or 422 when the plan does not fit.
+ * run() also sets sun.net.httpserver.nodelay, a JVM-wide property: code
+ * that embeds the server sets it itself (-Dsun.net.httpserver.nodelay=true).
+ */
+final class PlanServer {
+    static final String USAGE =
+        "Usage: java VlsmCli --serve <port> [--bind adresse] [--threads n] [--cache subnets]";
+
+    // Request bodies above this size are refused (413)
+    private static final int MAX_BODY = 64 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ForkJoinPool pool;
+    private final PlanCache cache;
+
+    PlanServer(InetSocketAddress address, int threads, PlanCache cache) throws IOException {
+        this.cache = cache;
+        this.pool = new ForkJoinPool(threads);
+        this.executor = newRequestExecutor(threads);
+        this.server = HttpServer.create(address, 1024);
+        server.createContext("/plan", exchange -> handle(exchange, this::plan));
+        server.createContext("/plans", exchange -> handle(exchange, this::plans));
+        server.createContext("/feasibility", exchange -> handle(exchange, this::feasibility));
+        server.createContext("/export", exchange -> handle(exchange, this::export));
+        server.setExecutor(executor);
+    }
+
+    static int run(String[] args) {
+        int port = -1;
+        String bind = "127.0.0.1";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long cacheSize = VlsmBatch.DEFAULT_CACHE;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--serve": port = Integer.parseInt(value); break;
+                    case "--bind": bind = value; break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    case "--cache": cacheSize = Long.parseLong(value); break;
+                    default:
+                        System.err.println("Option inconnue: " + args[i] + "\n" + USAGE);
+                        return 2;
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Valeur invalide pour " + args[i] + ": " + value);
+                return 2;
+            }
+        }
+        if (args.length % 2 != 0 || port < 0 || port > 65535 || threads < 1 || cacheSize < 0) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        // Small JSON replies otherwise wait for the client's delayed ACK (Nagle) on
+        // keep-alive connections; the JDK server reads this once, when it starts
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        try {
+            PlanServer server = new PlanServer(new InetSocketAddress(bind, port), threads,
+                                               cacheSize > 0 ? new PlanCache(cacheSize) : null);
+            server.start();
+            System.err.println("Service de planification sur http://" + bind + ":" + server.getPort() + "/");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("❌ Impossible de démarrer le service: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // One virtual thread per request on JDK 21+, looked up by reflection since the build targets 17
+    private static ExecutorService newRequestExecutor(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Plans are CPU bound: a few threads per core, the rest waits in the server's queue
+            return Executors.newFixedThreadPool(threads * 2, runnable -> {
+                Thread thread = new Thread(runnable, "plan-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, Object> request) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "méthode " + exchange.getRequestMethod() + " non prise en charge, POST attendu.");
+                return;
+            }
+            String body = readBody(exchange);
+            if (body == null) {
+                sendError(exchange, 413, "requête trop grande (" + MAX_BODY + " octets au plus).");
+                return;
+            }
+            try {
+                handler.handle(exchange, Json.parseObject(body));
+            } catch (RuntimeException e) {
+                if (exchange.getResponseCode() != -1) {
+                    // The status is already sent and the body partly written: only the log learns why
+                    System.err.println("❌ Réponse interrompue sur " + exchange.getRequestURI() + ": " + e);
+                } else if (e instanceof AllocationException) {
+                    sendError(exchange, 422, e.getMessage());
+                } else if (e instanceof IllegalArgumentException) {
+                    sendError(exchange, 400, e.getMessage());
+                } else {
+                    // Details stay in the server log, the client only learns that the request failed
+                    System.err.println("❌ Erreur interne sur " + exchange.getRequestURI() + ": " + e);
+                    sendError(exchange, 500, "erreur interne du service.");
+                }
+            }
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            if (body.size() + read > MAX_BODY) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private void plan(HttpExchange exchange, Map<String, Object> request) throws IOException {
+        Object plan = solve(request);
+        try (Writer out = startJson(exchange, 200)) {
+            writePlan(out, plan);
+            out.write('\n');
+        }
+    }
+
+    private void plans(HttpExchange exchange, Map<String, Object> request) throws IOException {
+        if (!(request.get("plans") instanceof List)) {
+            throw new IllegalArgumentException("\"plans\" (liste de plans) attendu.");
+        }
+        List<?> items = (List<?>) request.get("plans");
+        Object[] results = new Object[items.size()];
+        // IPv4 plans are grouped by strategy, each group solved in parallel (through the cache)
+        Map<PlacementStrategy, List<ParallelPlanner.Job>> jobs = new LinkedHashMap<>();
+        Map<PlacementStrategy, List<Integer>> jobIndexes = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            try {
+                Map<String, Object> item = asObject(items.get(i), "plans[" + i + "]");
+                String cidr = parentOf(item);
+                if (cidr.indexOf(':') >= 0) {
+                    results[i] = solve(item);
+                    continue;
+                }
+                int slash = cidr.indexOf('/');
+                int mask = parseMask(cidr, slash, 32);
+                PlacementStrategy strategy = strategyOf(item);
+                jobs.computeIfAbsent(strategy, s -> new ArrayList<>())
+                    .add(new ParallelPlanner.Job(networkOf(cidr, slash, mask), mask, subnetsOf(item),
+                                                 exclusionsOf(item)));
+                jobIndexes.computeIfAbsent(strategy, s -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = e;
+            }
+        }
+        for (Map.Entry<PlacementStrategy, List<ParallelPlanner.Job>> group : jobs.entrySet()) {
+            List<ParallelPlanner.Result> solved = ParallelPlanner.solve(group.getValue(), pool, cache, group.getKey());
+            List<Integer> indexes = jobIndexes.get(group.getKey());
+            for (int j = 0; j < solved.size(); j++) {
+                ParallelPlanner.Result result = solved.get(j);
+                results[indexes.get(j)] = result.isSuccess() ? result.getPlan() : result.getError();
+            }
+        }
+
+        try (Writer out = startJson(exchange, 200)) {
+            out.write("{\"results\":[");
+            for (int i = 0; i < results.length; i++) {
+                out.write(i == 0 ? "\n" : ",\n");
+                if (results[i] instanceof RuntimeException) {
+                    out.write(errorJson(((RuntimeException) results[i]).getMessage()));
+                } else {
+                    writePlan(out, results[i]);
+                }
+            }
+            out.write("\n]}\n");
+        }
+    }
+
+    private void feasibility(HttpExchange exchange, Map<String, Object> request) throws IOException {
+        Feasibility feasibility;
+        if (request.get("hosts") instanceof List) {
+            List<?> hosts = (List<?>) request.get("hosts");
+            int[] counts = new int[hosts.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = hostsValue(hosts.get(i));
+            }
+            feasibility = Feasibility.ofHosts(counts);
+        } else {
+            feasibility = Feasibility.of(subnetsOf(request));
+        }
+        StringBuilder sb = new StringBuilder(128).append('{');
+        Object network = request.get("network");
+        if (network != null) {
+            String cidr = network.toString();
+            int slash = cidr.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Réseau parent attendu au format a.b.c.d/p: " + cidr);
+            }
+            sb.append("\"fits\":").append(feasibility.fits(parseMask(cidr, slash, 32))).append(',');
+        }
+        sb.append("\"minimumPrefix\":").append(feasibility.getMinimumPrefix());
+        sb.append(",\"largestBlockPrefix\":").append(feasibility.getLargestBlockPrefix());
+        sb.append(",\"requiredAddresses\":").append(feasibility.getRequiredAddresses()).append("}\n");
+        send(exchange, 200, "application/json", sb.toString());
+    }
+
+    private void export(HttpExchange exchange, Map<String, Object> request) throws IOException {
+        String format = queryParameter(exchange.getRequestURI(), "format");
+        if (format == null) {
+            format = "csv";
+        }
+        if (!format.equals("csv") && !format.equals("jsonl") && !format.equals("bin")) {
+            throw new IllegalArgumentException("Format inconnu: " + format + " (csv, jsonl ou bin).");
+        }
+        Object plan = solve(request);
+        if (format.equals("bin") && plan instanceof Ipv6Plan) {
+            throw new IllegalArgumentException("les plans IPv6 ne sont pas pris en charge avec le format bin.");
+        }
+        String type = format.equals("csv") ? "text/csv; charset=utf-8"
+                    : format.equals("jsonl") ? "application/x-ndjson" : "application/octet-stream";
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        try (PlanWriter writer = format.equals("bin") ? new BinaryPlanWriter(body)
+                                 : format.equals("jsonl") ? new JsonLinesPlanWriter(textWriter(body))
+                                 : new CsvPlanWriter(textWriter(body))) {
+            if (plan instanceof Ipv6Plan) {
+                writer.write((Ipv6Plan) plan);
+            } else {
+                writer.write((VlsmPlan) plan);
+            }
+        }
+    }
+
+    // VlsmPlan or Ipv6Plan for a plan request
+    private Object solve(Map<String, Object> request) {
+        String cidr = parentOf(request);
+        int slash = cidr.indexOf('/');
+        List<Subnet> requirements = subnetsOf(request);
+        if (cidr.indexOf(':') >= 0) {
+            long[] address = new long[2];
+            if (!Ipv6.parse(cidr, 0, slash, address)) {
+                throw new IllegalArgumentException("Format d'adresse IPv6 invalide: " + cidr);
+            }
+            return Ipv6Allocator.allocate(address[0], parseMask(cidr, slash, 64), requirements, null);
+        }
+        int mask = parseMask(cidr, slash, 32);
+        int network = networkOf(cidr, slash, mask);
+        PlacementStrategy strategy = strategyOf(request);
+        Exclusions exclusions = exclusionsOf(request);
+        if (cache != null && PlanCache.serves(strategy) && exclusions == null) {
+            return cache.allocate(network, mask, requirements);
+        }
+        return VlsmAllocator.allocate(network, mask, requirements, exclusions, strategy, null);
+    }
+
+    private static String parentOf(Map<String, Object> request) {
+        Object network = request.get("network");
+        if (!(network instanceof String) || ((String) network).indexOf('/') < 0) {
+            throw new IllegalArgumentException("\"network\" attendu au format a.b.c.d/p: " + network);
+        }
+        return ((String) network).trim();
+    }
+
+    // IPv4 network of a "a.b.c.d/p" parent, host bits cleared
+    private static int networkOf(String cidr, int slash, int mask) {
+        long address = Ipv4.parse(cidr, 0, slash);
+        if (address == Ipv4.INVALID) {
+            throw new IllegalArgumentException("Format d'adresse IP invalide: " + cidr);
+        }
+        return (int) address & Ipv4.maskBits(mask);
+    }
+
+    private static int parseMask(String cidr, int slash, int max) {
+        try {
+            int mask = Integer.parseInt(cidr.substring(slash + 1).trim());
+            if (mask >= 0 && mask <= max) {
+                return mask;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Masque invalide: " + cidr);
+    }
+
+    private static PlacementStrategy strategyOf(Map<String, Object> request) {
+        Object strategy = request.get("strategy");
+        return strategy == null ? StandardPlacement.FIRST_FIT : StandardPlacement.forName(strategy.toString());
+    }
+
+    // "exclude" as one list in a string or as an array of entries; null when absent
+    private static Exclusions exclusionsOf(Map<String, Object> request) {
+        Object exclude = request.get("exclude");
+        if (exclude == null) {
+            return null;
+        }
+        if (exclude instanceof String) {
+            return Exclusions.parse((String) exclude);
+        }
+        if (!(exclude instanceof List)) {
+            throw new IllegalArgumentException("\"exclude\" (texte ou liste de plages) attendu.");
+        }
+        StringBuilder entries = new StringBuilder();
+        for (Object entry : (List<?>) exclude) {
+            if (!(entry instanceof String)) {
+                throw new IllegalArgumentException("\"exclude\": plage (texte) attendue: " + entry);
+            }
+            entries.append((String) entry).append(',');
+        }
+        return Exclusions.parse(entries);
+    }
+
+    private static List<Subnet> subnetsOf(Map<String, Object> request) {
+        if (!(request.get("subnets") instanceof List)) {
+            throw new IllegalArgumentException("\"subnets\" (liste de {\"name\", \"hosts\"}) attendu.");
+        }
+        List<?> items = (List<?>) request.get("subnets");
+        List<Subnet> subnets = new ArrayList<>(items.size());
+        SubnetNameIndex names = new SubnetNameIndex(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> item = asObject(items.get(i), "subnets[" + i + "]");
+            Object name = item.get("name");
+            if (!(name instanceof String)) {
+                throw new IllegalArgumentException("subnets[" + i + "]: \"name\" (texte) attendu.");
+            }
+            if (!names.add((String) name)) {
+                throw new IllegalArgumentException("Le nom '" + name + "' existe déjà dans ce plan.");
+            }
+            subnets.add(new Subnet((String) name, hostsValue(item.get("hosts"))));
+        }
+        return subnets;
+    }
+
+    private static int hostsValue(Object hosts) {
+        if (!(hosts instanceof Long)) {
+            throw new IllegalArgumentException("\"hosts\" (entier) attendu: " + hosts);
+        }
+        long value = (Long) hosts;
+        if (value <= 0 || value > Subnet.MAX_HOTES) {
+            throw new IllegalArgumentException("Nombre d'hôtes hors limites: " + value);
+        }
+        return (int) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value, String what) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException(what + ": objet attendu.");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    // The plan as one JSON object: totals, then the rows as JsonLinesPlanWriter writes them
+    private static void writePlan(Writer out, Object plan) throws IOException {
+        StringBuilder sb = new StringBuilder(160).append('{');
+        if (plan instanceof Ipv6Plan) {
+            Ipv6Plan ipv6Plan = (Ipv6Plan) plan;
+            sb.append("\"parent\":\"");
+            Ipv6.append(sb, ipv6Plan.getReseau(), 0).append('/').append(ipv6Plan.getMasque());
+            sb.append("\",\"usedNetworks\":").append(ipv6Plan.getUsedNetworks());
+            sb.append(",\"availableNetworks\":").append(Long.toUnsignedString(ipv6Plan.getAvailableNetworks()));
+        } else {
+            VlsmPlan vlsmPlan = (VlsmPlan) plan;
+            sb.append("\"parent\":\"");
+            Ipv4.append(sb, vlsmPlan.getReseau()).append('/').append(vlsmPlan.getMasque());
+            sb.append("\",\"usedAddresses\":").append(vlsmPlan.getUsedAddresses());
+            sb.append(",\"availableAddresses\":").append(vlsmPlan.getAvailableAddresses());
+            sb.append(",\"wastedHosts\":").append(vlsmPlan.getWastedHosts());
+            sb.append(",\"largestFreePrefix\":").append(vlsmPlan.getLargestFreePrefix());
+            if (vlsmPlan.getExcludedAddresses() > 0) {
+                sb.append(",\"excludedAddresses\":").append(vlsmPlan.getExcludedAddresses());
+            }
+        }
+        out.write(sb.append(",\"subnets\":[").toString());
+        RowWriter rows = new RowWriter(out);
+        if (plan instanceof Ipv6Plan) {
+            rows.write((Ipv6Plan) plan);
+        } else {
+            rows.write((VlsmPlan) plan);
+        }
+        out.write("\n]}");
+    }
+
+    private static String errorJson(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        return Json.quote(sb, message == null ? "erreur inconnue" : message).append('}').toString();
+    }
+
+    private static Writer startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, 0);
+        return textWriter(exchange.getResponseBody());
+    }
+
+    private static Writer textWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), PlanExport.BUFFER_SIZE);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "application/json", errorJson(message) + "\n");
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // JSON Lines rows as the elements of a JSON array
+    private static final class RowWriter extends JsonLinesPlanWriter {
+        private boolean first = true;
+
+        RowWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeLine() throws IOException {
+            // Each row ends with '\n': drop it and put the separator first
+            line.setLength(line.length() - 1);
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            super.writeLine();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Local store of named plans, one binary plan file (BinaryPlanWriter format)
+ * per plan in a directory: parent network, requirements and assigned blocks.
+ * Saving writes a temporary file and renames it over the old one, so a plan
+ * is never left half written. Callers re-plan against the stored plan with
+ * VlsmAllocator.replan, so subnets that did not change keep their addresses.
+ */
+public final class PlanStore {
+    // Plan names become file names, so they are kept to a safe character set
+    private static final Pattern PLAN_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+
+    private final Path directory;
+
+    public PlanStore(Path directory) {
+        this.directory = directory;
+    }
+
+    // ~/.subnito/plans
+    public static PlanStore defaultStore() {
+        return new PlanStore(Paths.get(System.getProperty("user.home"), ".subnito", "plans"));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Stored plan, or null if there is none under that name
+    public VlsmPlan load(String name) throws IOException {
+        Path file = fileFor(name);
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // Read into memory rather than mapped, so the file can be replaced by the next save
+        MappedPlanReader reader = MappedPlanReader.wrap(ByteBuffer.wrap(data), file);
+        if (reader.planCount() != 1) {
+            throw new IOException("Fichier de plan invalide " + file + ": un seul plan attendu.");
+        }
+        try {
+            return reader.getPlan(0).toPlan();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Fichier de plan invalide " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public void save(String name, VlsmPlan plan) throws IOException {
+        Path file = fileFor(name);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, name, ".tmp");
+        try {
+            try (BinaryPlanWriter writer = new BinaryPlanWriter(Files.newOutputStream(temp))) {
+                writer.write(plan);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(fileFor(name));
+    }
+
+    // Names of the stored plans, sorted
+    public List<String> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PlanExport.BINARY_EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                names.add(fileName.substring(0, fileName.length() - PlanExport.BINARY_EXTENSION.length()));
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    // Number of subnets of plan that kept the same block as in previous (matched by name, ignoring case)
+    public static int countUnchanged(VlsmPlan previous, VlsmPlan plan) {
+        if (previous == null) {
+            return 0;
+        }
+        Map<String, Subnet> before = new HashMap<>(previous.size() * 2);
+        for (Subnet subnet : previous.getSubnets()) {
+            before.put(SubnetNameIndex.fold(subnet.getName()), subnet);
+        }
+        int unchanged = 0;
+        for (Subnet subnet : plan.getSubnets()) {
+            Subnet old = before.get(SubnetNameIndex.fold(subnet.getName()));
+            if (old != null && old.getReseau() == subnet.getReseau() && old.getMasque() == subnet.getMasque()) {
+                unchanged++;
+            }
+        }
+        return unchanged;
+    }
+
+    // Name under which the GUI keeps the last plan of a parent network, e.g. "10.0.0.0_16"
+    static String nameFor(int network, int mask) {
+        return Ipv4.toString(network) + "_" + mask;
+    }
+
+    static String checkName(String name) {
+        if (name == null || !PLAN_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Nom de plan invalide: " + name
+                                               + " (lettres, chiffres, '.', '_' et '-' uniquement).");
+        }
+        return name;
+    }
+
+    private Path fileFor(String name) {
+        return directory.resolve(checkName(name) + PlanExport.BINARY_EXTENSION);
+    }
+}
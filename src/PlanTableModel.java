@@ -0,0 +1,104 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model over a VlsmPlan or an Ipv6Plan, largest subnet first.
+ * Cells are computed from the plan's int data when the table asks for them,
+ * so only visible rows are ever formatted and no per-row objects are kept.
+ */
+class PlanTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMN_NAMES = {
+        "Subnet Name", "Required Hosts", "Network Address", "Subnet Mask",
+        "First Host", "Last Host", "Broadcast Address", "Available Hosts"
+    };
+
+    private static final String[] IPV6_COLUMN_NAMES = {
+        "Subnet Name", "Required /64s", "Network Address", "Prefix",
+        "First Address", "Last Address", "Available /64s"
+    };
+
+    private VlsmPlan plan;
+    private Ipv6Plan ipv6Plan;
+
+    // Show a new plan (or none with null); fires a single table event
+    void setPlan(VlsmPlan plan) {
+        boolean columnsChanged = ipv6Plan != null;
+        this.plan = plan;
+        this.ipv6Plan = null;
+        fireChanged(columnsChanged);
+    }
+
+    void setPlan(Ipv6Plan plan) {
+        boolean columnsChanged = ipv6Plan == null;
+        this.plan = null;
+        this.ipv6Plan = plan;
+        fireChanged(columnsChanged);
+    }
+
+    private void fireChanged(boolean columnsChanged) {
+        if (columnsChanged) {
+            fireTableStructureChanged();
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    VlsmPlan getPlan() {
+        return plan;
+    }
+
+    Ipv6Plan getIpv6Plan() {
+        return ipv6Plan;
+    }
+
+    @Override
+    public int getRowCount() {
+        if (ipv6Plan != null) {
+            return ipv6Plan.size();
+        }
+        return plan == null ? 0 : plan.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return ipv6Plan != null ? IPV6_COLUMN_NAMES.length : COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return ipv6Plan != null ? IPV6_COLUMN_NAMES[column] : COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (ipv6Plan != null) {
+            return getIpv6Value(ipv6Plan.indexBySize(row), column);
+        }
+        Subnet subnet = plan.getBySize(row);
+        switch (column) {
+            case 0: return subnet.getName();
+            case 1: return subnet.getHotes();
+            case 2: return Ipv4.toString(subnet.getReseau());
+            case 3: return Ipv4.maskToString(subnet.getMasque());
+            case 4: return Ipv4.toString(subnet.getPremUtilisable());
+            case 5: return Ipv4.toString(subnet.getDernUtilisable());
+            case 6: return Ipv4.toString(subnet.getBroadcast());
+            case 7: return subnet.getHotesDisponibles();
+            default: throw new IndexOutOfBoundsException("Colonne invalide: " + column);
+        }
+    }
+
+    private Object getIpv6Value(int index, int column) {
+        switch (column) {
+            case 0: return ipv6Plan.getName(index);
+            case 1: return ipv6Plan.getRequiredNetworks(index);
+            case 2:
+            case 4: return Ipv6.toString(ipv6Plan.getNetwork(index), 0);
+            case 3: return "/" + ipv6Plan.getPrefix(index);
+            case 5: return Ipv6.toString(ipv6Plan.getLastNetwork(index), -1L);
+            case 6: return ipv6Plan.getAvailableNetworks(index);
+            default: throw new IndexOutOfBoundsException("Colonne invalide: " + column);
+        }
+    }
+}
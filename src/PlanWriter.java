@@ -0,0 +1,21 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Streams allocated plans to an output, one plan after the other.
+ * Implementations render rows straight from the plan's int data.
+ */
+public interface PlanWriter extends Flushable, Closeable {
+
+    void write(VlsmPlan plan) throws IOException;
+
+    // IPv6 plans are only supported by some formats
+    default void write(Ipv6Plan plan) throws IOException {
+        throw new IOException("Ce format ne prend pas en charge les plans IPv6.");
+    }
+
+    // Receive progress while a plan is written; ignored by default
+    default void setProgressListener(VlsmAllocator.ProgressListener listener) {
+    }
+}
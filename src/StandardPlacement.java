@@ -0,0 +1,69 @@
+import java.util.List;
+
+/**
+ * Built-in placement strategies, FIRST_FIT being the default.
+ * All of them place the largest subnets first, so any plan that fits with
+ * one fits with the others. On an empty parent they give the same plan; they
+ * differ once the free space is fragmented, e.g. around exclusions or the
+ * blocks a re-plan keeps. The internal waste (block size minus the hosts
+ * needed) is the same for all of them; what changes is how much contiguous
+ * aligned space remains, see VlsmPlan.getLargestFreePrefix().
+ */
+public enum StandardPlacement implements PlacementStrategy {
+    // Largest first, each block at the lowest address that can hold it
+    FIRST_FIT("first-fit") {
+        @Override
+        public long place(BuddyAllocator space, int prefix) {
+            return space.allocateLowest(prefix);
+        }
+    },
+    // Largest first, each block from the smallest free block that can hold it,
+    // so large free blocks stay whole as long as possible
+    BEST_FIT("best-fit") {
+        @Override
+        public long place(BuddyAllocator space, int prefix) {
+            return space.allocate(prefix);
+        }
+    },
+    // Largest first, each block in the smallest gap below the blocks already
+    // taken, so the small subnets fill the buddies left free by alignment,
+    // exclusions or removed subnets before the space above is cut into
+    GAP_PACKING("gap-packing") {
+        @Override
+        public long place(BuddyAllocator space, int prefix) {
+            return space.allocateInGap(prefix);
+        }
+    };
+
+    private final String name;
+
+    StandardPlacement(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int[] placementOrder(List<Subnet> requirements, int[] bySize) {
+        return bySize;
+    }
+
+    // Strategy by its command line name; IllegalArgumentException if unknown
+    public static StandardPlacement forName(String name) {
+        for (StandardPlacement placement : values()) {
+            if (placement.name.equalsIgnoreCase(name)) {
+                return placement;
+            }
+        }
+        throw new IllegalArgumentException("Stratégie de placement inconnue: " + name +
+                                           " (first-fit, best-fit ou gap-packing).");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,15 +1,42 @@
-public class Subnet {
-    private String name;
-    private String addresseReseau;
-    private String addresseBroadcast;
-    private String premAddUtilisable;
-    private String dernAddUtilisable;
-    private int masque;
-    private int hotes;
+/**
+ * Subnet value type.
+ * A requirement is a name and a number of hosts; once allocated it also holds
+ * the network address as an int and the prefix length. Broadcast and usable
+ * addresses are derived from those two values, and the dotted-quad text is
+ * only built when something is displayed.
+ */
+public final class Subnet {
+    static final int MAX_HOTES = 1073741822; // 2^30 - 2 (maximum theoretical hosts)
+    private static final int NON_ALLOUE = -1;
+
+    private final String name;
+    private final int hotes;
+    private final int reseau;
+    private final int masque;
     
     public Subnet(String name, int hotes) {
-        setName(name);
-        setHotes(hotes);
+        this.name = checkName(name);
+        this.hotes = checkHotes(hotes);
+        this.reseau = 0;
+        this.masque = NON_ALLOUE;
+    }
+
+    Subnet(String name, int hotes, int reseau, int masque) {
+        this.name = checkName(name);
+        this.hotes = checkHotes(hotes);
+        if (masque < 0 || masque > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + masque + ". Doit être entre 0 et 32.");
+        }
+        if ((reseau & ~Ipv4.maskBits(masque)) != 0) {
+            throw new IllegalArgumentException("Adresse réseau invalide: " + Ipv4.toString(reseau) + "/" + masque);
+        }
+        this.reseau = reseau;
+        this.masque = masque;
+    }
+
+    // Same requirement placed at the given network address
+    Subnet allocate(int reseau, int masque) {
+        return new Subnet(name, hotes, reseau, masque);
     }
     
     // Getters
@@ -17,101 +44,86 @@ public class Subnet {
         return name;
     }
     
-    public String getAddresseReseau() {
-        return addresseReseau;
-    }
-    
-    public String getAddresseBroadcast() {
-        return addresseBroadcast;
-    }
-    
-    public String getPremAddUtilisable() {
-        return premAddUtilisable;
+    public int getHotes() {
+        return hotes;
     }
     
-    public String getDernAddUtilisable() {
-        return dernAddUtilisable;
+    public boolean isAlloue() {
+        return masque != NON_ALLOUE;
     }
     
+    // Prefix length, or -1 while the subnet is not allocated
     public int getMasque() {
         return masque;
     }
     
-    public int getHotes() {
-        return hotes;
+    public int getReseau() {
+        return reseau;
     }
-    
-    // Setters
-    public void setName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Le nom du subnet ne peut pas être null ou vide.");
-        }
-        this.name = name.trim();
+
+    public int getBroadcast() {
+        return reseau | ~Ipv4.maskBits(masque);
     }
-    
-    public void setAddresseReseau(String addresseReseau) {
-        if (addresseReseau == null || !isValidIpAddress(addresseReseau)) {
-            throw new IllegalArgumentException("Adresse réseau invalide: " + addresseReseau);
-        }
-        this.addresseReseau = addresseReseau.trim();
+
+    public int getPremUtilisable() {
+        return reseau + 1;
     }
-    
-    public void setAddresseBroadcast(String addresseBroadcast) {
-        if (addresseBroadcast == null || !isValidIpAddress(addresseBroadcast)) {
-            throw new IllegalArgumentException("Adresse broadcast invalide: " + addresseBroadcast);
-        }
-        this.addresseBroadcast = addresseBroadcast.trim();
+
+    public int getDernUtilisable() {
+        return getBroadcast() - 1;
     }
-    
-    public void setPremAddUtilisable(String premAddUtilisable) {
-        if (premAddUtilisable == null || !isValidIpAddress(premAddUtilisable)) {
-            throw new IllegalArgumentException("Première adresse utilisable invalide: " + premAddUtilisable);
-        }
-        this.premAddUtilisable = premAddUtilisable.trim();
+
+    // Number of addresses in the block, network and broadcast included
+    public long getTaille() {
+        return 1L << (32 - masque);
     }
-    
-    public void setDernAddUtilisable(String dernAddUtilisable) {
-        if (dernAddUtilisable == null || !isValidIpAddress(dernAddUtilisable)) {
-            throw new IllegalArgumentException("Dernière adresse utilisable invalide: " + dernAddUtilisable);
-        }
-        this.dernAddUtilisable = dernAddUtilisable.trim();
+
+    public long getHotesDisponibles() {
+        return getTaille() - 2;
     }
-    
-    public void setMasque(int masque) {
-        if (masque < 0 || masque > 32) {
-            throw new IllegalArgumentException("Masque invalide: " + masque + ". Doit être entre 0 et 32.");
+
+    // Text getters, null while the subnet is not allocated
+    public String getAddresseReseau() {
+        return isAlloue() ? format(getReseau()) : null;
+    }
+
+    public String getAddresseBroadcast() {
+        return isAlloue() ? format(getBroadcast()) : null;
+    }
+
+    public String getPremAddUtilisable() {
+        return isAlloue() ? format(getPremUtilisable()) : null;
+    }
+
+    public String getDernAddUtilisable() {
+        return isAlloue() ? format(getDernUtilisable()) : null;
+    }
+
+    // Validation
+    private static String checkName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Le nom du subnet ne peut pas être null ou vide.");
         }
-        this.masque = masque;
+        return name.trim();
     }
-    
-    public void setHotes(int hotes) {
+
+    private static int checkHotes(int hotes) {
         if (hotes <= 0) {
             throw new IllegalArgumentException("Le nombre d'hôtes doit être positif. Valeur donnée: " + hotes);
         }
-        if (hotes > 1073741822) { // 2^30 - 2 (maximum theoretical hosts)
-            throw new IllegalArgumentException("Le nombre d'hôtes est trop grand. Maximum théorique: 1073741822");
+        if (hotes > MAX_HOTES) {
+            throw new IllegalArgumentException("Le nombre d'hôtes est trop grand. Maximum théorique: " + MAX_HOTES);
         }
-        this.hotes = hotes;
+        return hotes;
     }
-
-    private boolean isValidIpAddress(String ip) {
-        if (ip == null) return false;
-        String[] parts = ip.split("\\.");
-        if (parts.length != 4) return false;
-        try {
-            for (String part : parts) {
-                int value = Integer.parseInt(part);
-                if (value < 0 || value > 255) return false;
-            }
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    
+    private static String format(int ip) {
+        return Ipv4.toString(ip);
     }
     
     @Override
     public String toString() {
         return String.format("Subnet{name='%s', hotes=%d, addresseReseau='%s', masque=%d}", 
-                           name, hotes, addresseReseau, masque);
+                           name, hotes, getAddresseReseau(), masque);
     }
 }
\ No newline at end of file
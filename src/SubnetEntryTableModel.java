@@ -0,0 +1,187 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Editable table model behind the subnet entry screen.
+ * Names and host counts are kept as raw text in two arrays, so the JTable only
+ * creates renderers for the visible rows whatever the number of subnets.
+ * Rows can be filled in bulk from pasted or imported text.
+ */
+class SubnetEntryTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    static final int MAX_ROWS = 65536;
+    static final int NUMBER_COLUMN = 0;
+    static final int NAME_COLUMN = 1;
+    static final int HOSTS_COLUMN = 2;
+
+    private static final String[] COLUMN_NAMES = {"#", "Subnet name", "Hosts number"};
+
+    private String[] names;
+    private String[] hosts;
+    private int rowCount;
+    // Lines the last paste or import could not store, past MAX_ROWS
+    private int truncatedRows;
+
+    SubnetEntryTableModel(int rowCount) {
+        this.names = new String[Math.max(rowCount, 16)];
+        this.hosts = new String[names.length];
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == NUMBER_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column != NUMBER_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case NUMBER_COLUMN: return row + 1;
+            case NAME_COLUMN: return names[row];
+            default: return hosts[row];
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        String text = value == null ? null : value.toString();
+        if (column == NAME_COLUMN) {
+            names[row] = text;
+        } else if (column == HOSTS_COLUMN) {
+            hosts[row] = text;
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    // Trimmed name, empty if not filled in
+    String getName(int row) {
+        return names[row] == null ? "" : names[row].trim();
+    }
+
+    // Trimmed host count text, empty if not filled in
+    String getHosts(int row) {
+        return hosts[row] == null ? "" : hosts[row].trim();
+    }
+
+    /**
+     * Fill rows from text, one "name&lt;TAB&gt;hosts" or "name,hosts" line per row,
+     * starting at startRow. The table grows if needed, up to MAX_ROWS; the
+     * lines past it are counted by getTruncatedRows().
+     * Fires a single table event. Returns the number of rows written.
+     */
+    int paste(int startRow, String text) {
+        int row = Math.max(0, startRow);
+        int written = write(row, text);
+        if (row + written > rowCount) {
+            rowCount = row + written;
+        }
+        fireTableDataChanged();
+        return written;
+    }
+
+    /**
+     * Replace every row with the lines of text, in the same formats as paste():
+     * the table ends up with exactly the rows written.
+     * Fires a single table event. Returns the number of rows written.
+     */
+    int replaceAll(String text) {
+        int written = write(0, text);
+        if (written < rowCount) {
+            java.util.Arrays.fill(names, written, rowCount, null);
+            java.util.Arrays.fill(hosts, written, rowCount, null);
+        }
+        rowCount = written;
+        fireTableDataChanged();
+        return written;
+    }
+
+    // Rows dropped by the last paste() or replaceAll() because the table was full
+    int getTruncatedRows() {
+        return truncatedRows;
+    }
+
+    // Store the non-blank lines of text from row on, without firing events; returns the number written
+    private int write(int row, String text) {
+        String[] lines = text.split("\r?\n|\r");
+        int written = 0;
+        truncatedRows = 0;
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (row >= MAX_ROWS) {
+                truncatedRows++;
+                continue;
+            }
+            String[] fields = splitRow(line);
+            ensureCapacity(row + 1);
+            names[row] = fields[0];
+            hosts[row] = fields[1];
+            row++;
+            written++;
+        }
+        return written;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= names.length) {
+            return;
+        }
+        int capacity = Math.min(MAX_ROWS, Math.max(rows, names.length * 2));
+        names = java.util.Arrays.copyOf(names, capacity);
+        hosts = java.util.Arrays.copyOf(hosts, capacity);
+    }
+
+    // Split a spreadsheet (tab) or CSV (comma, optional quoted name) line into name and hosts
+    static String[] splitRow(String line) {
+        int tab = line.indexOf('\t');
+        if (tab >= 0) {
+            return new String[] {line.substring(0, tab).trim(), line.substring(tab + 1).trim()};
+        }
+        String trimmed = line.trim();
+        if (trimmed.startsWith("\"")) {
+            StringBuilder name = new StringBuilder();
+            int pos = 1;
+            while (pos < trimmed.length()) {
+                char c = trimmed.charAt(pos++);
+                if (c == '"') {
+                    if (pos < trimmed.length() && trimmed.charAt(pos) == '"') {
+                        name.append('"');
+                        pos++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    name.append(c);
+                }
+            }
+            int comma = trimmed.indexOf(',', pos);
+            return new String[] {name.toString(), comma < 0 ? "" : trimmed.substring(comma + 1).trim()};
+        }
+        int comma = trimmed.lastIndexOf(',');
+        if (comma < 0) {
+            return new String[] {trimmed, ""};
+        }
+        return new String[] {trimmed.substring(0, comma).trim(), trimmed.substring(comma + 1).trim()};
+    }
+}
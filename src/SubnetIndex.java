@@ -0,0 +1,201 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Query index over allocated blocks: which block holds an address (longest
+ * prefix match), does a block overlap anything, which blocks start in a range.
+ * Blocks are kept in primitive arrays sorted by network address, then by
+ * prefix length, with the sign bit flipped so a signed comparison orders them
+ * as unsigned addresses; lookups are binary searches. Two CIDR blocks are
+ * either disjoint or nested, so each block also points at the closest block
+ * that contains it: a longest prefix match is the last block starting at or
+ * before the address, then at most 32 hops up through its parents.
+ * Sorting is three counting passes, so building is O(n) and allocates no
+ * per-block objects. Immutable and safe to share between threads.
+ */
+public final class SubnetIndex {
+    // Sorted by (network, prefix); network and last address with the sign bit flipped
+    private final int[] starts;
+    private final int[] ends;
+    private final byte[] prefixes;
+    // Input index of the block at each sorted position
+    private final int[] indexes;
+    // Sorted position of the closest enclosing block, -1 for a top-level block
+    private final int[] parents;
+
+    private SubnetIndex(int[] starts, int[] ends, byte[] prefixes, int[] indexes, int[] parents) {
+        this.starts = starts;
+        this.ends = ends;
+        this.prefixes = prefixes;
+        this.indexes = indexes;
+        this.parents = parents;
+    }
+
+    // Index over the subnets of a plan; lookups return input order indexes, as plan.get(i)
+    public static SubnetIndex of(VlsmPlan plan) {
+        int n = plan.size();
+        int[] networks = new int[n];
+        int[] masks = new int[n];
+        for (int i = 0; i < n; i++) {
+            networks[i] = plan.get(i).getReseau();
+            masks[i] = plan.get(i).getMasque();
+        }
+        return of(networks, masks);
+    }
+
+    // Same over a plan read from a binary export, without building its subnets
+    public static SubnetIndex of(MappedPlanReader.MappedPlan plan) {
+        int n = plan.size();
+        int[] networks = new int[n];
+        int[] masks = new int[n];
+        for (int row = 0; row < n; row++) {
+            networks[row] = plan.getNetwork(row);
+            masks[row] = plan.getPrefix(row);
+        }
+        return of(networks, masks);
+    }
+
+    /**
+     * Index over the blocks networks[i]/prefixes[i]; they may be nested (a
+     * lookup then returns the innermost one) and must be aligned on their size.
+     */
+    public static SubnetIndex of(int[] networks, int[] prefixes) {
+        int n = networks.length;
+        if (prefixes.length != n) {
+            throw new IllegalArgumentException("Autant de préfixes que de réseaux attendus.");
+        }
+        for (int i = 0; i < n; i++) {
+            if (prefixes[i] < 0 || prefixes[i] > 32 || (networks[i] & ~Ipv4.maskBits(prefixes[i])) != 0) {
+                throw new IllegalArgumentException("Bloc invalide: " + Ipv4.toString(networks[i]) + "/" + prefixes[i]);
+            }
+        }
+
+        // LSD radix sort of the input indexes: by prefix, then by the two halves of the address
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[n];
+        radixPass(order, buffer, prefixes, 0, 63);
+        radixPass(buffer, order, networks, 0, 0xFFFF);
+        radixPass(order, buffer, networks, 16, 0xFFFF);
+
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        byte[] sortedPrefixes = new byte[n];
+        int[] parents = new int[n];
+        // Open blocks that may still contain the next ones, innermost on top
+        int[] stack = new int[34];
+        int depth = 0;
+        for (int position = 0; position < n; position++) {
+            int index = buffer[position];
+            int start = networks[index] ^ Integer.MIN_VALUE;
+            starts[position] = start;
+            ends[position] = (networks[index] | ~Ipv4.maskBits(prefixes[index])) ^ Integer.MIN_VALUE;
+            sortedPrefixes[position] = (byte) prefixes[index];
+            while (depth > 0 && ends[stack[depth - 1]] < start) {
+                depth--;
+            }
+            parents[position] = depth > 0 ? stack[depth - 1] : -1;
+            if (depth == stack.length) {
+                // Only identical blocks nest deeper than 33
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = position;
+        }
+        return new SubnetIndex(starts, ends, sortedPrefixes, buffer, parents);
+    }
+
+    // Stable counting sort of src into dst on (keys[i] >>> shift) & mask
+    private static void radixPass(int[] src, int[] dst, int[] keys, int shift, int mask) {
+        int[] counts = new int[mask + 2];
+        for (int index : src) {
+            counts[((keys[index] >>> shift) & mask) + 1]++;
+        }
+        for (int b = 1; b < counts.length; b++) {
+            counts[b] += counts[b - 1];
+        }
+        for (int index : src) {
+            dst[counts[(keys[index] >>> shift) & mask]++] = index;
+        }
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Input index of the smallest block containing address (longest prefix
+     * match), or -1 if no block contains it.
+     */
+    public int lookup(int address) {
+        int key = address ^ Integer.MIN_VALUE;
+        int position = floor(key);
+        while (position >= 0) {
+            if (key <= ends[position]) {
+                return indexes[position];
+            }
+            position = parents[position];
+        }
+        return -1;
+    }
+
+    // True if network/prefix shares at least one address with an indexed block
+    public boolean overlaps(int network, int prefix) {
+        int start = (network & Ipv4.maskBits(prefix)) ^ Integer.MIN_VALUE;
+        int end = (network | ~Ipv4.maskBits(prefix)) ^ Integer.MIN_VALUE;
+        // Either a block contains the first address, or one starts inside the range
+        if (lookup(network & Ipv4.maskBits(prefix)) >= 0) {
+            return true;
+        }
+        int next = floor(start) + 1;
+        return next < starts.length && starts[next] <= end;
+    }
+
+    /**
+     * Sorted position of the first block whose network address is at or
+     * after address (unsigned); size() if there is none.
+     */
+    public int ceilingPosition(int address) {
+        if (address == 0) {
+            return 0;
+        }
+        return floor((address ^ Integer.MIN_VALUE) - 1) + 1;
+    }
+
+    // Calls action with the input index of every block whose network address lies in [from, to], by address
+    public void forEachInRange(int from, int to, IntConsumer action) {
+        int last = to ^ Integer.MIN_VALUE;
+        for (int position = ceilingPosition(from); position < starts.length && starts[position] <= last; position++) {
+            action.accept(indexes[position]);
+        }
+    }
+
+    // Block at a sorted position: network address, prefix length and input index
+    public int getNetworkAt(int position) {
+        return starts[position] ^ Integer.MIN_VALUE;
+    }
+
+    public int getPrefixAt(int position) {
+        return prefixes[position];
+    }
+
+    public int getIndexAt(int position) {
+        return indexes[position];
+    }
+
+    // Last sorted position whose (flipped) start is <= key, -1 if none
+    private int floor(int key) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
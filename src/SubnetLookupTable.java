@@ -0,0 +1,168 @@
+import java.util.Arrays;
+
+/**
+ * Address to subnet table for bulk lookups (tagging flow logs with their
+ * subnet). A multibit trie with strides of 16, 8 and 8 bits: the first 16
+ * bits of an address index a 65536-entry root, and only the /16s and /24s
+ * that hold longer prefixes get a 256-entry chunk below them. Every entry is
+ * either a leaf (subnet index + 1, 0 for no subnet) or the complement of the
+ * offset of its chunk, so a lookup is one to three array reads with no
+ * comparison against the blocks. Longer prefixes are written after shorter
+ * ones and overwrite them, which gives the longest prefix match for nested
+ * blocks.
+ * Immutable and safe to share between threads.
+ */
+public final class SubnetLookupTable {
+    private static final int CHUNK = 256;
+
+    private final int[] root;
+    // Every 256-entry chunk of the second and third levels, back to back
+    private final int[] chunks;
+
+    private SubnetLookupTable(int[] root, int[] chunks) {
+        this.root = root;
+        this.chunks = chunks;
+    }
+
+    // Table over the subnets of a plan; lookups return input order indexes, as plan.get(i)
+    public static SubnetLookupTable of(VlsmPlan plan) {
+        int n = plan.size();
+        int[] networks = new int[n];
+        int[] masks = new int[n];
+        for (int i = 0; i < n; i++) {
+            networks[i] = plan.get(i).getReseau();
+            masks[i] = plan.get(i).getMasque();
+        }
+        return of(networks, masks);
+    }
+
+    /**
+     * Table over the blocks networks[i]/prefixes[i]; they may be nested (a
+     * lookup then returns the innermost one) and must be aligned on their size.
+     */
+    public static SubnetLookupTable of(int[] networks, int[] prefixes) {
+        int n = networks.length;
+        if (prefixes.length != n) {
+            throw new IllegalArgumentException("Autant de préfixes que de réseaux attendus.");
+        }
+        // Input indexes grouped by prefix length, shortest first
+        int[] starts = new int[34];
+        for (int i = 0; i < n; i++) {
+            if (prefixes[i] < 0 || prefixes[i] > 32 || (networks[i] & ~Ipv4.maskBits(prefixes[i])) != 0) {
+                throw new IllegalArgumentException("Bloc invalide: " + Ipv4.toString(networks[i]) + "/" + prefixes[i]);
+            }
+            starts[prefixes[i] + 1]++;
+        }
+        for (int p = 1; p < starts.length; p++) {
+            starts[p] += starts[p - 1];
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[starts[prefixes[i]]++] = i;
+        }
+
+        Builder builder = new Builder();
+        for (int index : order) {
+            builder.insert(networks[index], prefixes[index], index + 1);
+        }
+        return new SubnetLookupTable(builder.root, Arrays.copyOf(builder.chunks, builder.used));
+    }
+
+    private static final class Builder {
+        final int[] root = new int[1 << 16];
+        int[] chunks = new int[16 * CHUNK];
+        int used;
+
+        void insert(int network, int prefix, int leaf) {
+            if (prefix <= 16) {
+                int first = network >>> 16;
+                Arrays.fill(root, first, first + (1 << (16 - prefix)), leaf);
+                return;
+            }
+            int level2 = expand(root, network >>> 16);
+            if (prefix <= 24) {
+                int first = level2 + ((network >>> 8) & 0xFF);
+                Arrays.fill(chunks, first, first + (1 << (24 - prefix)), leaf);
+                return;
+            }
+            // chunks may be reallocated by expand, so the slot is passed by offset
+            int level3 = expand(null, level2 + ((network >>> 8) & 0xFF));
+            int first = level3 + (network & 0xFF);
+            Arrays.fill(chunks, first, first + (1 << (32 - prefix)), leaf);
+        }
+
+        // Offset of the chunk below slot (of root, or of chunks if table is null), created from its leaf if needed
+        int expand(int[] table, int slot) {
+            int entry = table != null ? table[slot] : chunks[slot];
+            if (entry < 0) {
+                return ~entry;
+            }
+            if (used + CHUNK > chunks.length) {
+                if (chunks.length > Integer.MAX_VALUE / 2) {
+                    throw new IllegalStateException("Table de recherche trop grande.");
+                }
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            int offset = used;
+            used += CHUNK;
+            // Addresses of the chunk not covered by a longer prefix keep the enclosing block
+            Arrays.fill(chunks, offset, offset + CHUNK, entry);
+            if (table != null) {
+                table[slot] = ~offset;
+            } else {
+                chunks[slot] = ~offset;
+            }
+            return offset;
+        }
+    }
+
+    // Input index of the smallest block containing address, -1 if none does
+    public int lookup(int address) {
+        int entry = root[address >>> 16];
+        if (entry < 0) {
+            entry = chunks[~entry + ((address >>> 8) & 0xFF)];
+            if (entry < 0) {
+                entry = chunks[~entry + (address & 0xFF)];
+            }
+        }
+        return entry - 1;
+    }
+
+    // lookup() of every address, written to the same position of result
+    public void lookup(int[] addresses, int[] result) {
+        lookup(addresses, 0, result, 0, addresses.length);
+    }
+
+    /**
+     * lookup() of addresses[from .. from+count), written to result[to ..];
+     * allocates nothing, so it can be called on each buffer of a stream.
+     */
+    public void lookup(int[] addresses, int from, int[] result, int to, int count) {
+        if (from < 0 || to < 0 || count < 0 || count > addresses.length - from || count > result.length - to) {
+            throw new IndexOutOfBoundsException("Plage invalide: " + from + ", " + to + ", " + count);
+        }
+        int[] root = this.root;
+        int[] chunks = this.chunks;
+        for (int i = 0; i < count; i++) {
+            int address = addresses[from + i];
+            int entry = root[address >>> 16];
+            if (entry < 0) {
+                entry = chunks[~entry + ((address >>> 8) & 0xFF)];
+                if (entry < 0) {
+                    entry = chunks[~entry + (address & 0xFF)];
+                }
+            }
+            result[to + i] = entry - 1;
+        }
+    }
+
+    // Memory taken by the table, in bytes
+    public long getMemoryBytes() {
+        return 4L * (root.length + chunks.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SubnetLookupTable{chunks=%d, octets=%d}", chunks.length / CHUNK, getMemoryBytes());
+    }
+}
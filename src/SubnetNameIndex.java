@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * Case-insensitive set of subnet names, used by every input path to reject
+ * duplicates. Open addressing with linear probing over a String[] table; the
+ * hash is computed on case-folded characters and equality uses
+ * equalsIgnoreCase, so lookups do not allocate. add and contains are O(1)
+ * on average, which keeps uniqueness checks linear over the whole input.
+ */
+final class SubnetNameIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] table;
+    private int size;
+
+    SubnetNameIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    SubnetNameIndex(int expectedSize) {
+        table = new String[capacityFor(expectedSize)];
+    }
+
+    // Add a name; returns false if an equal name (ignoring case) is already present
+    boolean add(String name) {
+        int slot = find(name);
+        if (table[slot] != null) {
+            return false;
+        }
+        table[slot] = name;
+        if (++size * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    boolean contains(String name) {
+        return table[find(name)] != null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (table.length > MIN_CAPACITY * 4 && size * 8 < table.length) {
+            table = new String[capacityFor(size)];
+        } else {
+            Arrays.fill(table, null);
+        }
+        size = 0;
+    }
+
+    // Slot holding name, or the empty slot where it would go
+    private int find(String name) {
+        int mask = table.length - 1;
+        int slot = hash(name) & mask;
+        while (table[slot] != null && !table[slot].equalsIgnoreCase(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        String[] old = table;
+        table = new String[capacity];
+        int mask = capacity - 1;
+        for (String name : old) {
+            if (name != null) {
+                int slot = hash(name) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = name;
+            }
+        }
+    }
+
+    // Name folded the way the index compares names, as a key for maps matching subnets by name
+    static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    // Same folding as String.equalsIgnoreCase, so equal names always hash alike
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -1,42 +1,53 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class SubnetsCreation extends JFrame {
     private String ipAddress;
     private String networkMask;
     private Subnet[] subnets;
+    // Ranges left out of the parent, null if none
+    private Exclusions exclusions;
+    // Re-plan against the plan saved for this parent network, and save the new one
+    private boolean resumeSaved;
     private JTable subnetsTable;
-    private DefaultTableModel tableModel;
+    private PlanTableModel tableModel;
     private JLabel networkInfoLabel;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
+    private JButton exportButton;
+    // Calculation or export running in the background, cancelled by the Cancel button
+    private SwingWorker<?, ?> backgroundTask;
     
     public SubnetsCreation(String ipAddress, String networkMask, Subnet[] subnets) {
+        this(ipAddress, networkMask, subnets, null, false);
+    }
+    
+    public SubnetsCreation(String ipAddress, String networkMask, Subnet[] subnets, Exclusions exclusions,
+                           boolean resumeSaved) {
         this.ipAddress = ipAddress;
         this.networkMask = networkMask;
         this.subnets = subnets;
+        this.exclusions = exclusions;
+        this.resumeSaved = resumeSaved;
         
         initializeComponents();
-        calculateSubnets();
         setupLayout();
         setupWindow();
+        calculateSubnets();
     }
     
     private void initializeComponents() {
-        // Create table model
-        String[] columnNames = {
-            "Subnet Name", "Required Hosts", "Network Address", "Subnet Mask", 
-            "First Host", "Last Host", "Broadcast Address", "Available Hosts"
-        };
-        
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        // Create table model, read-only and filled from the plan once computed
+        tableModel = new PlanTableModel();
         
         subnetsTable = new JTable(tableModel) {
             @Override
@@ -73,105 +84,199 @@ public class SubnetsCreation extends JFrame {
         networkInfoLabel.setFont(new Font("Arial", Font.BOLD, 14));
         networkInfoLabel.setForeground(Color.WHITE);
         networkInfoLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        
+        // Progress of the background calculation
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(200, 35));
+        progressBar.setVisible(false);
     }
     
+    // Compute the plan off the EDT; the table is filled once the worker is done
     private void calculateSubnets() {
-    try {
-        // Sort subnets by required hosts in descending order (VLSM requirement)
-        java.util.Arrays.sort(subnets, (a, b) -> Integer.compare(b.getHotes(), a.getHotes()));
-        
-        // Parse network mask to get CIDR
-        int cidr = parseMaskToCIDR(networkMask);
-        
-        // Calculate total available hosts in the network
-        long totalAvailableHosts = (1L << (32 - cidr)) - 2;
-        
-        // Calculate total required hosts
-        int totalRequiredHosts = 0;
-        for (Subnet subnet : subnets) {
-            totalRequiredHosts += subnet.getHotes();
-        }
-        
-        // Check if we have enough space
-        if (totalRequiredHosts > totalAvailableHosts) {
-            JOptionPane.showMessageDialog(this, 
-                "Not enough address space for the requested subnets!\n" +
-                "Available hosts: " + totalAvailableHosts + "\n" +
-                "Required hosts: " + totalRequiredHosts,
-                "Subnet Calculation Error", 
-                JOptionPane.ERROR_MESSAGE);
+        if (ipAddress.indexOf(':') >= 0) {
+            calculateIpv6Subnets();
             return;
         }
-        
-        // Convert IP address to long
-        String[] ipParts = ipAddress.split("\\.");
-        long networkAddress = 0;
-        for (int i = 0; i < 4; i++) {
-            networkAddress = (networkAddress << 8) + Integer.parseInt(ipParts[i]);
+        int cidr;
+        int network;
+        try {
+            // Parse network mask to get CIDR
+            cidr = parseMaskToCIDR(networkMask);
+            if (cidr < 0 || cidr > 32) {
+                throw new IllegalArgumentException("Invalid subnet mask: " + networkMask);
+            }
+            network = Ipv4.parseAddress(ipAddress) & Ipv4.maskBits(cidr);
+            // Exact capacity check, so a plan that cannot fit fails before the worker starts
+            Feasibility.of(Arrays.asList(subnets)).check(cidr);
+        } catch (Exception e) {
+            showCalculationError(e);
+            return;
         }
+        List<Subnet> requirements = Arrays.asList(subnets);
         
-        // Apply network mask to get actual network address
-        long mask = (-1L << (32 - cidr)) & 0xFFFFFFFFL;
-        networkAddress = networkAddress & mask;
+        networkInfoLabel.setText("Calculating " + subnets.length + " subnets...");
         
-        long currentNetwork = networkAddress;
+        runInBackground(new SwingWorker<VlsmPlan, Void>() {
+            // Subnets that kept their block from the saved plan, -1 if there was none
+            private int unchanged = -1;
+            private boolean saved;
         
-        // Calculate each subnet
-        for (int i = 0; i < subnets.length; i++) {
-            Subnet subnet = subnets[i];
-            int requiredHosts = subnet.getHotes();
-            
-            // Calculate bits needed for hosts (hostBits) and new CIDR
-            int hostBits = (int) Math.ceil(Math.log(requiredHosts + 2) / Math.log(2));
-            int subnetCIDR = 32 - hostBits;
-            
-            // Calculate subnet size
-            long subnetSize = 1L << hostBits;
+            // When asked to, re-plan against the last plan saved for this parent
+            // network, so unchanged subnets keep their addresses, then save the new one
+            @Override
+            protected VlsmPlan doInBackground() {
+                VlsmAllocator.ProgressListener listener = (done, total) -> setProgress((int) (done * 100L / total));
+                if (!resumeSaved) {
+                    return VlsmAllocator.allocate(network, cidr, requirements, exclusions,
+                                                  StandardPlacement.FIRST_FIT, listener);
+                }
+                PlanStore store = PlanStore.defaultStore();
+                String name = PlanStore.nameFor(network, cidr);
+                VlsmPlan previous = null;
+                try {
+                    previous = store.load(name);
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable or corrupt saved plan: start from scratch, it gets replaced below
+                }
+                VlsmPlan plan;
+                try {
+                    plan = VlsmAllocator.replan(previous, network, cidr, requirements, exclusions,
+                                                StandardPlacement.FIRST_FIT, listener);
+                } catch (AllocationException e) {
+                    if (previous == null) {
+                        throw e;
+                    }
+                    // Does not fit around the kept subnets: renumber everything
+                    plan = VlsmAllocator.allocate(network, cidr, requirements, exclusions,
+                                                  StandardPlacement.FIRST_FIT, listener);
+                }
+                if (previous != null) {
+                    unchanged = PlanStore.countUnchanged(previous, plan);
+                }
+                try {
+                    store.save(name, plan);
+                    saved = true;
+                } catch (IOException e) {
+                    saved = false;
+                }
+                return plan;
+            }
             
-            // Check if subnet fits in remaining space
-            if ((currentNetwork & 0xFF) + subnetSize > 256) {
-                // Move to next octet if current one is full
-                currentNetwork = ((currentNetwork >> 8) + 1) << 8;
+            @Override
+            protected void done() {
+                backgroundTaskDone();
+                if (isCancelled()) {
+                    networkInfoLabel.setText("Calculation cancelled");
+                    return;
+                }
+                try {
+                    VlsmPlan plan = get();
+                    showPlan(plan);
+                    if (unchanged >= 0) {
+                        networkInfoLabel.setText(networkInfoLabel.getText() + " | Unchanged: "
+                                                 + unchanged + "/" + plan.size());
+                    }
+                    if (resumeSaved && !saved) {
+                        networkInfoLabel.setText(networkInfoLabel.getText() + " | Plan not saved");
+                    }
+                } catch (ExecutionException e) {
+                    showCalculationError(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        });
+    }
             
-            // Set subnet properties
-            subnet.setAddresseReseau(longToIP(currentNetwork));
-            subnet.setMasque(subnetCIDR);
-            subnet.setAddresseBroadcast(longToIP(currentNetwork + subnetSize - 1));
-            subnet.setPremAddUtilisable(longToIP(currentNetwork + 1));
-            subnet.setDernAddUtilisable(longToIP(currentNetwork + subnetSize - 2));
+    // IPv6 parent: the hosts numbers are counts of /64 networks
+    private void calculateIpv6Subnets() {
+        int prefix;
+        long network;
+        try {
+            prefix = Integer.parseInt(networkMask);
+            network = Ipv6.parseAddress(ipAddress)[0];
+        } catch (Exception e) {
+            showCalculationError(e);
+            return;
+        }
+        List<Subnet> requirements = Arrays.asList(subnets);
             
-            // Add to table
-            Object[] rowData = {
-                subnet.getName(),
-                requiredHosts,
-                subnet.getAddresseReseau(),
-                cidrToMask(subnetCIDR),
-                subnet.getPremAddUtilisable(),
-                subnet.getDernAddUtilisable(),
-                subnet.getAddresseBroadcast(),
-                subnetSize - 2  // Available hosts
-            };
+        networkInfoLabel.setText("Calculating " + subnets.length + " subnets...");
             
-            tableModel.addRow(rowData);
+        runInBackground(new SwingWorker<Ipv6Plan, Void>() {
+            @Override
+            protected Ipv6Plan doInBackground() {
+                return Ipv6Allocator.allocate(network, prefix, requirements,
+                    (done, total) -> setProgress((int) (done * 100L / total)));
+            }
             
-            // Move to next subnet
-            currentNetwork += subnetSize;
-        }
+            @Override
+            protected void done() {
+                backgroundTaskDone();
+                if (isCancelled()) {
+                    networkInfoLabel.setText("Calculation cancelled");
+                    return;
+                }
+                try {
+                    Ipv6Plan plan = get();
+                    tableModel.setPlan(plan);
+                    networkInfoLabel.setText(String.format(
+                        "Original Network: %s/%d | Used /64 Networks: %d of %s | Total Required /64s: %d",
+                        plan.getAddresseReseau(), plan.getMasque(), plan.getUsedNetworks(),
+                        Long.toUnsignedString(plan.getAvailableNetworks()), plan.getTotalRequiredNetworks()));
+                    exportButton.setEnabled(true);
+                } catch (ExecutionException e) {
+                    showCalculationError(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+    
+    // Start a worker with the progress bar and Cancel button shown; export is disabled meanwhile
+    private void runInBackground(SwingWorker<?, ?> task) {
+        backgroundTask = task;
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        exportButton.setEnabled(false);
+        task.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+        task.execute();
+    }
+    
+    private void backgroundTaskDone() {
+        backgroundTask = null;
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+    }
+    
+    // Publish the plan to the table in a single model update, largest subnet first
+    private void showPlan(VlsmPlan plan) {
+        tableModel.setPlan(plan);
         
         // Update network info
         networkInfoLabel.setText(String.format(
-            "Original Network: %s/%d | Total Available Hosts: %d | Total Required Hosts: %d",
-            longToIP(networkAddress), cidr, totalAvailableHosts, totalRequiredHosts
-        ));
+            "Original Network: %s/%d | Total Available Hosts: %d | Total Required Hosts: %d | Wasted Hosts: %d"
+                + " | Largest Free Aligned Block: %s",
+            plan.getAddresseReseau(), plan.getMasque(), plan.getAvailableAddresses() - 2, plan.getTotalRequiredHosts(),
+            plan.getWastedHosts(), plan.getLargestFreePrefix() < 0 ? "none" : "/" + plan.getLargestFreePrefix()
+        ) + (plan.getExcludedAddresses() > 0 ? " | Excluded: " + plan.getExcludedAddresses() : ""));
+        exportButton.setEnabled(true);
+    }
         
-    } catch (Exception e) {
+    private void showCalculationError(Throwable e) {
+        networkInfoLabel.setText("Calculation failed");
         JOptionPane.showMessageDialog(this, 
             "Error calculating subnets: " + e.getMessage(),
             "Calculation Error", 
             JOptionPane.ERROR_MESSAGE);
     }
-}
     
     private int parseMaskToCIDR(String mask) {
         try {
@@ -179,43 +284,14 @@ public class SubnetsCreation extends JFrame {
             return Integer.parseInt(mask);
         } catch (NumberFormatException e) {
             // Parse dotted decimal notation
-            String[] parts = mask.split("\\.");
-            if (parts.length != 4) {
+            int cidr = Ipv4.parseMask(mask);
+            if (cidr < 0) {
                 throw new IllegalArgumentException("Invalid subnet mask format");
             }
-            
-            long maskValue = 0;
-            for (int i = 0; i < 4; i++) {
-                maskValue = (maskValue << 8) + Integer.parseInt(parts[i]);
-            }
-            
-            // Count consecutive 1 bits from the left
-            int cidr = 0;
-            for (int i = 31; i >= 0; i--) {
-                if ((maskValue & (1L << i)) != 0) {
-                    cidr++;
-                } else {
-                    break;
-                }
-            }
-            
             return cidr;
         }
     }
     
-    private String longToIP(long ip) {
-        return String.format("%d.%d.%d.%d",
-            (ip >> 24) & 0xFF,
-            (ip >> 16) & 0xFF,
-            (ip >> 8) & 0xFF,
-            ip & 0xFF);
-    }
-    
-    private String cidrToMask(int cidr) {
-        long mask = (-1L << (32 - cidr)) & 0xFFFFFFFFL;
-        return longToIP(mask);
-    }
-    
     private void setupLayout() {
         setLayout(new BorderLayout());
         
@@ -278,7 +354,7 @@ public class SubnetsCreation extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout());
         buttonPanel.setOpaque(false);
         
-        JButton exportButton = new JButton("Export to CSV");
+        exportButton = new JButton("Export...");
         exportButton.setFont(new Font("Arial", Font.BOLD, 12));
         exportButton.setBackground(new Color(144, 238, 144));
         exportButton.setForeground(new Color(46, 125, 50));
@@ -294,6 +370,15 @@ public class SubnetsCreation extends JFrame {
         newCalculationButton.setPreferredSize(new Dimension(130, 35));
         newCalculationButton.setFocusPainted(false);
         
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFont(new Font("Arial", Font.BOLD, 12));
+        cancelButton.setBackground(new Color(144, 238, 144));
+        cancelButton.setForeground(new Color(46, 125, 50));
+        cancelButton.setBorder(BorderFactory.createRaisedBevelBorder());
+        cancelButton.setPreferredSize(new Dimension(80, 35));
+        cancelButton.setFocusPainted(false);
+        cancelButton.setVisible(false);
+        
         JButton closeButton = new JButton("Close");
         closeButton.setFont(new Font("Arial", Font.BOLD, 12));
         closeButton.setBackground(new Color(144, 238, 144));
@@ -306,7 +391,16 @@ public class SubnetsCreation extends JFrame {
         exportButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                exportToCSV();
+                exportResults();
+            }
+        });
+        
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (backgroundTask != null) {
+                    backgroundTask.cancel(true);
+                }
             }
         });
         
@@ -327,6 +421,8 @@ public class SubnetsCreation extends JFrame {
             }
         });
         
+        buttonPanel.add(progressBar);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(exportButton);
         buttonPanel.add(newCalculationButton);
         buttonPanel.add(closeButton);
@@ -336,54 +432,112 @@ public class SubnetsCreation extends JFrame {
         add(mainPanel);
     }
     
-    private void exportToCSV() {
+    private void exportResults() {
+        VlsmPlan plan = tableModel.getPlan();
+        Ipv6Plan ipv6Plan = tableModel.getIpv6Plan();
+        if (plan == null && ipv6Plan == null) {
+            return;
+        }
+        
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Subnet Calculation Results");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv"));
+        // Each filter comes with the extension appended when the name has none of the known ones
+        String[] extensions = {".csv", ".csv.gz", PlanExport.JSON_LINES_EXTENSION, PlanExport.BINARY_EXTENSION};
+        javax.swing.filechooser.FileNameExtensionFilter[] filters = {
+            new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv"),
+            new javax.swing.filechooser.FileNameExtensionFilter("Compressed CSV Files (.csv.gz)", "gz"),
+            new javax.swing.filechooser.FileNameExtensionFilter("JSON Lines Files (.jsonl)", "jsonl"),
+            new javax.swing.filechooser.FileNameExtensionFilter("Binary Plan Files (.vlsp)", "vlsp")
+        };
+        // The binary format only holds IPv4 plans
+        int formats = ipv6Plan != null ? filters.length - 1 : filters.length;
+        for (int i = 0; i < formats; i++) {
+            fileChooser.addChoosableFileFilter(filters[i]);
+        }
+        fileChooser.setFileFilter(filters[0]);
         fileChooser.setSelectedFile(new java.io.File("subnet_results.csv"));
         
-        int userSelection = fileChooser.showSaveDialog(this);
-        
-        if (userSelection == JFileChooser.APPROVE_OPTION) {
-            java.io.File fileToSave = fileChooser.getSelectedFile();
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.io.File fileToSave = fileChooser.getSelectedFile();
+        
+        // Ensure a known extension, the one of the selected filter by default
+        String name = fileToSave.getName().toLowerCase();
+        int selected = Math.max(0, Arrays.asList(filters).indexOf(fileChooser.getFileFilter()));
+        if (selected == 1 && name.endsWith(".csv")) {
+            fileToSave = new java.io.File(fileToSave.getAbsolutePath() + ".gz");
+        } else if (!name.endsWith(".csv") && !name.endsWith(".gz") && !name.endsWith(PlanExport.JSON_LINES_EXTENSION)
+                   && !name.endsWith(PlanExport.BINARY_EXTENSION)) {
+            fileToSave = new java.io.File(fileToSave.getAbsolutePath() + extensions[selected]);
+        }
+        Path target = fileToSave.toPath();
             
-            // Ensure .csv extension
-            if (!fileToSave.getName().toLowerCase().endsWith(".csv")) {
-                fileToSave = new java.io.File(fileToSave.getAbsolutePath() + ".csv");
+        // Stream rows straight from the plan, in table order, off the EDT
+        runInBackground(new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                boolean complete = false;
+                try {
+                    try (PlanWriter writer = PlanExport.openPlanWriter(target, true)) {
+                        writer.setProgressListener((done, total) -> setProgress((int) (done * 100L / total)));
+                        if (ipv6Plan != null) {
+                            writer.write(ipv6Plan);
+                        } else {
+                            writer.write(plan);
+                        }
+                    }
+                    complete = true;
+                } finally {
+                    // Deleted here, once the writer is closed: done() can run on the EDT
+                    // as soon as the task is cancelled, while this thread still writes
+                    if (!complete || isCancelled()) {
+                        deletePartialExport(target);
+                    }
+                }
+                return null;
             }
             
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(fileToSave)) {
-                // Write header
-                StringBuilder header = new StringBuilder();
-                for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                    if (i > 0) header.append(",");
-                    header.append("\"").append(tableModel.getColumnName(i)).append("\"");
-                }
-                writer.println(header.toString());
-                
-                // Write data
-                for (int row = 0; row < tableModel.getRowCount(); row++) {
-                    StringBuilder line = new StringBuilder();
-                    for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                        if (col > 0) line.append(",");
-                        Object value = tableModel.getValueAt(row, col);
-                        line.append("\"").append(value != null ? value.toString() : "").append("\"");
+            @Override
+            protected void done() {
+                backgroundTaskDone();
+                exportButton.setEnabled(true);
+                try {
+                    if (isCancelled()) {
+                        return;
                     }
-                    writer.println(line.toString());
+                    get();
+                    JOptionPane.showMessageDialog(SubnetsCreation.this, 
+                        "Results exported successfully to:\n" + target.toAbsolutePath(),
+                        "Export Successful", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(SubnetsCreation.this, 
+                        "Error exporting results:\n" + e.getCause().getMessage(),
+                        "Export Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-                
-                JOptionPane.showMessageDialog(this, 
-                    "Results exported successfully to:\n" + fileToSave.getAbsolutePath(),
-                    "Export Successful", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (java.io.IOException e) {
-                JOptionPane.showMessageDialog(this, 
-                    "Error exporting results:\n" + e.getMessage(),
-                    "Export Error", 
-                    JOptionPane.ERROR_MESSAGE);
             }
+        });
+    }
+                
+    private static void deletePartialExport(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Leave the partial file; nothing else to do
+        }
+    }
+                
+    @Override
+    public void dispose() {
+        // Closing the window stops a calculation or export still running
+        if (backgroundTask != null) {
+            backgroundTask.cancel(true);
         }
+        super.dispose();
     }
     
     private void setupWindow() {
@@ -2,28 +2,36 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class SubnetsInput extends JFrame {
+    private static final int MAX_LISTED_ERRORS = 20;
+    
     private String ipAddress;
     private String networkMask;
     private int subnetsNumber;
-    private List<JTextField> subnetNameFields;
-    private List<JTextField> hostsNumberFields;
+    private SubnetEntryTableModel entryModel;
+    private JTable entryTable;
+    // Ranges to leave out of an IPv4 parent, parsed by validateInputs
+    private JTextField exclusionsField;
+    private Exclusions exclusions;
+    private JCheckBox resumeCheckBox;
     private JButton okButton;
+    private JButton importButton;
     private JButton homeButton;
     private JButton infoButton;
-    private JPanel inputPanel;
     
     public SubnetsInput(String ipAddress, String networkMask, int subnetsNumber) {
         this.ipAddress = ipAddress;
         this.networkMask = networkMask;
         this.subnetsNumber = subnetsNumber;
-        this.subnetNameFields = new ArrayList<>();
-        this.hostsNumberFields = new ArrayList<>();
         
         initializeComponents();
         setupLayout();
@@ -32,28 +40,62 @@ public class SubnetsInput extends JFrame {
     }
     
     private void initializeComponents() {
-        // Create text field lists for dynamic input fields
-        for (int i = 0; i < subnetsNumber; i++) {
-            JTextField nameField = new JTextField(20);
-            JTextField hostsField = new JTextField(20);
-            
-            // Style input fields
-            Font fieldFont = new Font("Arial", Font.PLAIN, 14);
-            Color fieldBg = new Color(220, 220, 220);
+        // Model-backed table: only the visible rows get renderers
+        entryModel = new SubnetEntryTableModel(subnetsNumber);
+        entryTable = new JTable(entryModel);
+        entryTable.setFont(new Font("Arial", Font.PLAIN, 14));
+        entryTable.setBackground(new Color(220, 220, 220));
+        entryTable.setRowHeight(30);
+        entryTable.setGridColor(Color.WHITE);
+        entryTable.setSurrendersFocusOnKeystroke(true);
+        entryTable.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        entryTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 16));
+        entryTable.getTableHeader().setBackground(new Color(76, 175, 80));
+        entryTable.getTableHeader().setForeground(Color.WHITE);
+        entryTable.getTableHeader().setReorderingAllowed(false);
+        entryTable.getColumnModel().getColumn(SubnetEntryTableModel.NUMBER_COLUMN).setPreferredWidth(50);
+        entryTable.getColumnModel().getColumn(SubnetEntryTableModel.NUMBER_COLUMN).setMaxWidth(80);
+        entryTable.getColumnModel().getColumn(SubnetEntryTableModel.NAME_COLUMN).setPreferredWidth(300);
+        entryTable.getColumnModel().getColumn(SubnetEntryTableModel.HOSTS_COLUMN).setPreferredWidth(200);
+        entryTable.setToolTipText("Enter a unique name and the number of hosts for each subnet (Ctrl+V pastes rows)");
+        if (ipAddress.indexOf(':') >= 0) {
+            // IPv6 subnets are sized in /64 networks rather than hosts
+            entryTable.getColumnModel().getColumn(SubnetEntryTableModel.HOSTS_COLUMN).setHeaderValue("/64 networks");
+            entryTable.setToolTipText("Enter a unique name and the number of /64 networks for each subnet (Ctrl+V pastes rows)");
+        }
             
-            nameField.setFont(fieldFont);
-            nameField.setBackground(fieldBg);
-            nameField.setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
-            nameField.setToolTipText("Enter a unique name for subnet " + (i + 1));
+        // Paste rows copied from a spreadsheet or a CSV file
+        entryTable.getInputMap(JComponent.WHEN_FOCUSED).put(
+            KeyStroke.getKeyStroke(KeyEvent.VK_V, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()), "pasteRows");
+        entryTable.getActionMap().put("pasteRows", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                pasteRows();
+            }
+        });
             
-            hostsField.setFont(fieldFont);
-            hostsField.setBackground(fieldBg);
-            hostsField.setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
-            hostsField.setToolTipText("Enter number of hosts needed for subnet " + (i + 1));
+        // Addresses already in use or reserved in the parent, e.g. gateways
+        exclusionsField = new JTextField(30);
+        exclusionsField.setFont(new Font("Arial", Font.PLAIN, 14));
+        exclusionsField.setToolTipText("Optional: addresses, CIDR blocks or ranges to skip, e.g. 10.0.0.1, 10.0.4.0/22, 10.0.9.10-10.0.9.99");
+        
+        // Off by default: nothing is read from or written to the plan store unless asked
+        resumeCheckBox = new JCheckBox("Resume saved plan");
+        resumeCheckBox.setFont(new Font("Arial", Font.BOLD, 14));
+        resumeCheckBox.setForeground(Color.WHITE);
+        resumeCheckBox.setOpaque(false);
+        resumeCheckBox.setToolTipText("Keep the addresses of the plan last saved for this network in "
+                                      + PlanStore.defaultStore().getDirectory() + ", then save the new plan there");
             
-            subnetNameFields.add(nameField);
-            hostsNumberFields.add(hostsField);
-        }
+        // Create import button
+        importButton = new JButton("Import...");
+        importButton.setFont(new Font("Arial", Font.BOLD, 16));
+        importButton.setBackground(new Color(144, 238, 144));
+        importButton.setForeground(new Color(46, 125, 50));
+        importButton.setBorder(BorderFactory.createRaisedBevelBorder());
+        importButton.setPreferredSize(new Dimension(120, 40));
+        importButton.setFocusPainted(false);
+        importButton.setToolTipText("Import subnets from a CSV file (name,hosts per line)");
         
         // Create OK button
         okButton = new JButton("OK");
@@ -170,57 +212,37 @@ public class SubnetsInput extends JFrame {
         titlePanel.add(Box.createVerticalStrut(30));
         
         // Input section
-        inputPanel = new JPanel();
-        inputPanel.setOpaque(false);
-        inputPanel.setLayout(new GridBagLayout());
-        GridBagConstraints gbc = new GridBagConstraints();
-        
-        // Column headers
-        JLabel nameHeaderLabel = new JLabel("Subnet name");
-        nameHeaderLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        nameHeaderLabel.setForeground(Color.WHITE);
-        nameHeaderLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        
-        JLabel hostsHeaderLabel = new JLabel("Hosts number");
-        hostsHeaderLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        hostsHeaderLabel.setForeground(Color.WHITE);
-        hostsHeaderLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        
-        gbc.gridx = 0; gbc.gridy = 0;
-        gbc.insets = new Insets(0, 40, 15, 20);
-        gbc.anchor = GridBagConstraints.CENTER;
-        inputPanel.add(nameHeaderLabel, gbc);
-        
-        gbc.gridx = 1; gbc.gridy = 0;
-        gbc.insets = new Insets(0, 20, 15, 40);
-        inputPanel.add(hostsHeaderLabel, gbc);
-        
-        // Add input fields for each subnet
-        for (int i = 0; i < subnetsNumber; i++) {
-            gbc.gridx = 0; gbc.gridy = i + 1;
-            gbc.fill = GridBagConstraints.HORIZONTAL;
-            gbc.insets = new Insets(5, 40, 5, 20);
-            inputPanel.add(subnetNameFields.get(i), gbc);
-            
-            gbc.gridx = 1; gbc.gridy = i + 1;
-            gbc.insets = new Insets(5, 20, 5, 40);
-            inputPanel.add(hostsNumberFields.get(i), gbc);
-        }
-        
-        // Create scrollable panel for input fields
-        JScrollPane scrollPane = new JScrollPane(inputPanel);
-        scrollPane.setOpaque(false);
-        scrollPane.getViewport().setOpaque(false);
-        scrollPane.setBorder(null);
+        JScrollPane scrollPane = new JScrollPane(entryTable);
+        scrollPane.getViewport().setBackground(new Color(220, 220, 220));
+        scrollPane.setBorder(BorderFactory.createLineBorder(Color.WHITE, 2));
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         
         titlePanel.add(scrollPane);
-        titlePanel.add(Box.createVerticalStrut(30));
+        titlePanel.add(Box.createVerticalStrut(15));
+        
+        // Excluded ranges, IPv4 parents only
+        if (ipAddress.indexOf(':') < 0) {
+            JPanel exclusionsPanel = new JPanel(new FlowLayout());
+            exclusionsPanel.setOpaque(false);
+            JLabel exclusionsLabel = new JLabel("Excluded ranges:");
+            exclusionsLabel.setFont(new Font("Arial", Font.BOLD, 14));
+            exclusionsLabel.setForeground(Color.WHITE);
+            exclusionsPanel.add(exclusionsLabel);
+            exclusionsPanel.add(exclusionsField);
+            titlePanel.add(exclusionsPanel);
+            
+            JPanel resumePanel = new JPanel(new FlowLayout());
+            resumePanel.setOpaque(false);
+            resumePanel.add(resumeCheckBox);
+            titlePanel.add(resumePanel);
+        }
+        titlePanel.add(Box.createVerticalStrut(15));
         
         // OK Button
         JPanel buttonPanel = new JPanel(new FlowLayout());
         buttonPanel.setOpaque(false);
+        buttonPanel.add(importButton);
         buttonPanel.add(okButton);
         titlePanel.add(buttonPanel);
         
@@ -238,6 +260,13 @@ public class SubnetsInput extends JFrame {
             }
         });
         
+        importButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importRows();
+            }
+        });
+        
         homeButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -258,51 +287,152 @@ public class SubnetsInput extends JFrame {
         });
     }
     
+    private void pasteRows() {
+        try {
+            String text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+            stopEditing();
+            int startRow = Math.max(0, entryTable.getSelectedRow());
+            int written = entryModel.paste(startRow, text);
+            if (written > 0) {
+                entryTable.changeSelection(startRow, SubnetEntryTableModel.NAME_COLUMN, false, false);
+            }
+            if (entryModel.getTruncatedRows() > 0) {
+                JOptionPane.showMessageDialog(this, written + " rows pasted.\n" + truncatedRowsMessage(),
+                                            "Paste Incomplete", JOptionPane.WARNING_MESSAGE);
+            }
+        } catch (UnsupportedFlavorException | IOException e) {
+            JOptionPane.showMessageDialog(this, "Clipboard does not contain text.",
+                                        "Paste Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    // Rows the last paste or import dropped past the table limit
+    private String truncatedRowsMessage() {
+        return entryModel.getTruncatedRows() + " more rows were not added: the table holds at most "
+               + SubnetEntryTableModel.MAX_ROWS + " subnets.";
+    }
+    
+    private void importRows() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Subnets");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV or text files", "csv", "txt"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            String text = new String(Files.readAllBytes(fileChooser.getSelectedFile().toPath()), StandardCharsets.UTF_8);
+            // Skip a "name,hosts" header line
+            int firstBreak = text.indexOf('\n');
+            String firstLine = firstBreak < 0 ? text : text.substring(0, firstBreak);
+            String[] header = SubnetEntryTableModel.splitRow(firstLine);
+            if (!header[1].isEmpty() && !Character.isDigit(header[1].charAt(0))) {
+                text = firstBreak < 0 ? "" : text.substring(firstBreak + 1);
+            }
+            if (text.trim().isEmpty()) {
+                JOptionPane.showMessageDialog(this, "The file contains no subnets.",
+                                            "Import Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            stopEditing();
+            // Imported rows replace the table content
+            int written = entryModel.replaceAll(text);
+            if (entryModel.getTruncatedRows() > 0) {
+                JOptionPane.showMessageDialog(this, written + " subnets imported.\n" + truncatedRowsMessage(),
+                                            "Import Incomplete", JOptionPane.WARNING_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, written + " subnets imported.",
+                                            "Import Successful", JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error importing subnets:\n" + e.getMessage(),
+                                        "Import Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void stopEditing() {
+        if (entryTable.isEditing()) {
+            entryTable.getCellEditor().stopCellEditing();
+        }
+    }
+    
+    private void showRow(int row, int column) {
+        entryTable.changeSelection(row, column, false, false);
+        entryTable.requestFocusInWindow();
+    }
+    
+    // Select the first faulty cell and list only the first errors; a bulk paste can produce thousands
+    private int recordError(List<String> errors, int errorCount, int row, int column, String error) {
+        if (errorCount == 0) {
+            showRow(row, column);
+        }
+        if (errorCount < MAX_LISTED_ERRORS) {
+            errors.add("Subnet " + (row + 1) + ": " + error);
+        }
+        return errorCount + 1;
+    }
+    
     private boolean validateInputs() {
-        Set<String> usedNames = new HashSet<>();
+        stopEditing();
+        SubnetNameIndex usedNames = new SubnetNameIndex(entryModel.getRowCount());
         List<String> errors = new ArrayList<>();
+        int errorCount = 0;
         
-        for (int i = 0; i < subnetsNumber; i++) {
-            String name = subnetNameFields.get(i).getText().trim();
-            String hostsText = hostsNumberFields.get(i).getText().trim();
+        for (int i = 0; i < entryModel.getRowCount(); i++) {
+            String name = entryModel.getName(i);
+            String hostsText = entryModel.getHosts(i);
+            String nameError = null;
+            String hostsError = null;
             
             // Validate subnet name
             if (name.isEmpty()) {
-                errors.add("Subnet " + (i + 1) + ": Name cannot be empty!");
-                subnetNameFields.get(i).requestFocus();
-            } else if (usedNames.contains(name.toLowerCase())) {
-                errors.add("Subnet " + (i + 1) + ": Name '" + name + "' is already used!");
-                subnetNameFields.get(i).requestFocus();
-            } else {
-                usedNames.add(name.toLowerCase());
+                nameError = "Name cannot be empty!";
+            } else if (!usedNames.add(name)) {
+                nameError = "Name '" + name + "' is already used!";
             }
             
             // Validate hosts number
             if (hostsText.isEmpty()) {
-                errors.add("Subnet " + (i + 1) + ": Hosts number cannot be empty!");
-                if (errors.size() == 1) hostsNumberFields.get(i).requestFocus();
+                hostsError = "Hosts number cannot be empty!";
             } else {
                 try {
                     int hosts = Integer.parseInt(hostsText);
                     if (hosts <= 0) {
-                        errors.add("Subnet " + (i + 1) + ": Hosts number must be greater than 0!");
-                        if (errors.size() == 1) hostsNumberFields.get(i).requestFocus();
+                        hostsError = "Hosts number must be greater than 0!";
                     } else if (hosts > 16777214) { // Maximum hosts in a /8 network - 2
-                        errors.add("Subnet " + (i + 1) + ": Hosts number too large (max: 16,777,214)!");
-                        if (errors.size() == 1) hostsNumberFields.get(i).requestFocus();
+                        hostsError = "Hosts number too large (max: 16,777,214)!";
                     }
                 } catch (NumberFormatException ex) {
-                    errors.add("Subnet " + (i + 1) + ": Hosts number must be a valid integer!");
-                    if (errors.size() == 1) hostsNumberFields.get(i).requestFocus();
+                    hostsError = "Hosts number must be a valid integer!";
                 }
             }
+            
+            if (nameError != null) {
+                errorCount = recordError(errors, errorCount, i, SubnetEntryTableModel.NAME_COLUMN, nameError);
+            }
+            if (hostsError != null) {
+                errorCount = recordError(errors, errorCount, i, SubnetEntryTableModel.HOSTS_COLUMN, hostsError);
+            }
+        }
+        
+        exclusions = null;
+        String exclusionsText = exclusionsField.getText().trim();
+        if (!exclusionsText.isEmpty() && ipAddress.indexOf(':') < 0) {
+            try {
+                exclusions = Exclusions.parse(exclusionsText);
+            } catch (IllegalArgumentException ex) {
+                errors.add("Excluded ranges: " + ex.getMessage());
+                errorCount++;
+            }
         }
         
-        if (!errors.isEmpty()) {
+        if (errorCount > 0) {
             StringBuilder errorMessage = new StringBuilder("Please fix the following errors:\n\n");
             for (String error : errors) {
                 errorMessage.append("• ").append(error).append("\n");
             }
+            if (errorCount > errors.size()) {
+                errorMessage.append("… and ").append(errorCount - errors.size()).append(" more\n");
+            }
             
             JOptionPane.showMessageDialog(this, errorMessage.toString(), 
                                         "Input Validation Errors", JOptionPane.ERROR_MESSAGE);
@@ -314,19 +444,19 @@ public class SubnetsInput extends JFrame {
     
     private void openSubnetsCreation() {
         // Create array of Subnet objects
-        Subnet[] subnets = new Subnet[subnetsNumber];
+        Subnet[] subnets = new Subnet[entryModel.getRowCount()];
         
-        for (int i = 0; i < subnetsNumber; i++) {
-            String name = subnetNameFields.get(i).getText().trim();
-            int hosts = Integer.parseInt(hostsNumberFields.get(i).getText().trim());
-            subnets[i] = new Subnet(name, hosts);
+        for (int i = 0; i < subnets.length; i++) {
+            subnets[i] = new Subnet(entryModel.getName(i), Integer.parseInt(entryModel.getHosts(i)));
         }
         
         // Close current window and open SubnetsCreation
+        Exclusions excluded = exclusions;
+        boolean resume = resumeCheckBox.isSelected();
         dispose();
         SwingUtilities.invokeLater(() -> {
             try {
-                SubnetsCreation subnetsFrame = new SubnetsCreation(ipAddress, networkMask, subnets);
+                SubnetsCreation subnetsFrame = new SubnetsCreation(ipAddress, networkMask, subnets, excluded, resume);
                 subnetsFrame.setVisible(true);
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(null, 
@@ -342,7 +472,7 @@ public class SubnetsInput extends JFrame {
         
         // Calculate window height based on number of subnets
         int baseHeight = 400;
-        int fieldHeight = 45;
+        int fieldHeight = 30;
         int calculatedHeight = baseHeight + (subnetsNumber * fieldHeight);
         int maxHeight = 800;
         int finalHeight = Math.min(calculatedHeight, maxHeight);
@@ -12,10 +12,6 @@ public class Subnito extends JFrame {
     private JButton okButton;
     private JButton infoButton;
     
-    // IP address validation pattern
-    private static final String IP_PATTERN = 
-        "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
-    
     // Network mask validation pattern (CIDR notation or dotted decimal)
     private static final String MASK_PATTERN = 
         "^(([0-9]|[1-2][0-9]|3[0-2])|(((255\\.){3}(255|254|252|248|240|224|192|128|0+))|((255\\.){2}(255|254|252|248|240|224|192|128|0+)\\.0)|((255\\.)(255|254|252|248|240|224|192|128|0+)(\\.0){2})|((255|254|252|248|240|224|192|128|0+)(\\.0){3})))$";
@@ -40,6 +36,8 @@ public class Subnito extends JFrame {
         ipAddressField.setFont(fieldFont);
         ipAddressField.setBackground(fieldBg);
         ipAddressField.setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
+        // Octets with leading zeros (010.0.0.1) are rejected: they were accepted before but read as decimal
+        ipAddressField.setToolTipText("IPv4 (e.g. 192.168.1.0, octets without leading zeros) or IPv6 address");
         
         networkMaskField.setFont(fieldFont);
         networkMaskField.setBackground(fieldBg);
@@ -211,8 +209,10 @@ public class Subnito extends JFrame {
             return false;
         }
         
-        if (!Pattern.matches(IP_PATTERN, ipAddress)) {
-            showError("Invalid IP address format!\nPlease enter a valid IP address (e.g., 192.168.1.1)");
+        boolean ipv6 = Ipv6.isValid(ipAddress);
+        if (!ipv6 && !Ipv4.isValid(ipAddress)) {
+            showError("Invalid IP address format!\nPlease enter a valid IPv4 or IPv6 address (e.g., 192.168.1.1 or 2001:db8::)"
+                      + "\nIPv4 octets must not have leading zeros (10.0.0.1, not 010.0.0.1).");
             ipAddressField.requestFocus();
             return false;
         }
@@ -224,7 +224,13 @@ public class Subnito extends JFrame {
             return false;
         }
         
-        if (!isValidNetworkMask(networkMask)) {
+        if (ipv6 && !isValidIpv6Prefix(networkMask)) {
+            showError("Invalid IPv6 prefix!\nPlease enter a prefix length between 1 and 64 (e.g., 48)");
+            networkMaskField.requestFocus();
+            return false;
+        }
+        
+        if (!ipv6 && !isValidNetworkMask(networkMask)) {
             showError("Invalid network mask format!\nPlease enter CIDR notation (e.g., 24) or dotted decimal (e.g., 255.255.255.0)");
             networkMaskField.requestFocus();
             return false;
@@ -264,6 +270,16 @@ public class Subnito extends JFrame {
         }
     }
     
+    // IPv6 subnets are carved in /64 units, so the parent is at most a /64
+    private boolean isValidIpv6Prefix(String prefix) {
+        try {
+            int length = Integer.parseInt(prefix);
+            return length >= 1 && length <= 64;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
     private void showError(String message) {
         JOptionPane.showMessageDialog(this, message, "Input Validation Error", JOptionPane.ERROR_MESSAGE);
     }
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * Ordered list of free supernets (aligned CIDR blocks) that plan parents are
+ * requested from. take() carves the smallest parent that holds a plan out of
+ * the first supernet large enough, at its start; what is left of it stays at
+ * its place in the list as smaller aligned blocks (the buddies split off on
+ * the way down), so later requests are still served first fit in order.
+ */
+final class SupernetPool {
+    private int[] networks = new int[8];
+    private int[] prefixes = new int[8];
+    private int size;
+
+    // Pool from "a.b.c.d/p[,a.b.c.d/p...]", in the given order
+    static SupernetPool parse(String list) {
+        SupernetPool pool = new SupernetPool();
+        for (String cidr : list.split(",")) {
+            cidr = cidr.trim();
+            int slash = cidr.indexOf('/');
+            int prefix;
+            try {
+                prefix = slash < 0 ? -1 : Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                prefix = -1;
+            }
+            if (prefix < 0 || prefix > 32) {
+                throw new IllegalArgumentException("Supernet attendu au format a.b.c.d/p: " + cidr);
+            }
+            long address = Ipv4.parse(cidr, 0, slash);
+            if (address == Ipv4.INVALID) {
+                throw new IllegalArgumentException("Format d'adresse IP invalide: " + cidr);
+            }
+            pool.add((int) address, prefix);
+        }
+        return pool;
+    }
+
+    void add(int network, int prefix) {
+        if ((network & ~Ipv4.maskBits(prefix)) != 0) {
+            throw new IllegalArgumentException("Supernet non aligné: " + Ipv4.toString(network) + "/" + prefix);
+        }
+        ensureCapacity(size + 1);
+        networks[size] = network;
+        prefixes[size] = prefix;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Take a parent of feasibility.getMinimumPrefix() from the first supernet
+     * that holds it; returns its network address as an unsigned value, or -1
+     * if no supernet is large enough.
+     */
+    long take(Feasibility feasibility) {
+        int index = feasibility.findSupernet(prefixes, size);
+        if (index < 0) {
+            return -1;
+        }
+        int prefix = feasibility.getMinimumPrefix();
+        int network = networks[index];
+        int split = prefix - prefixes[index];
+
+        // Replace the supernet by the upper halves split off, lowest address first
+        ensureCapacity(size + split);
+        System.arraycopy(networks, index + 1, networks, index + split, size - index - 1);
+        System.arraycopy(prefixes, index + 1, prefixes, index + split, size - index - 1);
+        for (int i = 0; i < split; i++) {
+            int level = prefix - i;
+            networks[index + i] = network + (int) (1L << (32 - level));
+            prefixes[index + i] = level;
+        }
+        size += split - 1;
+        return Integer.toUnsignedLong(network);
+    }
+
+    /**
+     * Give back a parent obtained from take(), e.g. when its plan failed. It
+     * is merged with its buddy while the buddy is free, so a supernet split by
+     * take() is whole again once all its parts are back, and takes the place
+     * of the last buddy merged (before the first higher supernet if none was).
+     */
+    void release(int network, int prefix) {
+        if (prefix < 0 || prefix > 32 || (network & ~Ipv4.maskBits(prefix)) != 0) {
+            throw new IllegalArgumentException("Supernet non aligné: " + Ipv4.toString(network) + "/" + prefix);
+        }
+        int index = -1;
+        while (prefix > 0) {
+            int buddy = network ^ (1 << (32 - prefix));
+            int found = indexOf(buddy, prefix);
+            if (found < 0) {
+                break;
+            }
+            System.arraycopy(networks, found + 1, networks, found, size - found - 1);
+            System.arraycopy(prefixes, found + 1, prefixes, found, size - found - 1);
+            size--;
+            index = found;
+            network &= buddy;
+            prefix--;
+        }
+        if (index < 0) {
+            index = 0;
+            while (index < size && Integer.compareUnsigned(networks[index], network) < 0) {
+                index++;
+            }
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(networks, index, networks, index + 1, size - index);
+        System.arraycopy(prefixes, index, prefixes, index + 1, size - index);
+        networks[index] = network;
+        prefixes[index] = prefix;
+        size++;
+    }
+
+    private int indexOf(int network, int prefix) {
+        for (int i = 0; i < size; i++) {
+            if (networks[i] == network && prefixes[i] == prefix) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > networks.length) {
+            int length = Math.max(capacity, networks.length * 2);
+            networks = Arrays.copyOf(networks, length);
+            prefixes = Arrays.copyOf(prefixes, length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SupernetPool[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Ipv4.append(sb, networks[i]).append('/').append(prefixes[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
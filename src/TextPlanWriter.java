@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Base of the text plan writers. Rows are rendered into one reused
+ * StringBuilder and copied to the Writer through a reused char[], so writing a
+ * row allocates nothing. Progress is reported every PROGRESS_STEP rows, and
+ * an interrupted thread stops the export with a CancellationException.
+ */
+abstract class TextPlanWriter implements PlanWriter {
+    private static final int PROGRESS_STEP = 4096;
+
+    protected final Writer out;
+    protected final StringBuilder line = new StringBuilder(160);
+    private final boolean bySize;
+    private char[] chars = new char[256];
+    private VlsmAllocator.ProgressListener listener;
+
+    protected TextPlanWriter(Writer out, boolean bySize) {
+        this.out = out;
+        this.bySize = bySize;
+    }
+
+    @Override
+    public void setProgressListener(VlsmAllocator.ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(VlsmPlan plan) throws IOException {
+        startPlan(plan);
+        int rows = plan.size();
+        for (int i = 0; i < rows; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                VlsmAllocator.checkProgress(listener, i, rows);
+            }
+            writeRow(plan, bySize ? plan.getBySize(i) : plan.get(i));
+        }
+        if (listener != null) {
+            listener.progress(rows, rows);
+        }
+    }
+
+    @Override
+    public void write(Ipv6Plan plan) throws IOException {
+        startPlan(plan);
+        int rows = plan.size();
+        for (int i = 0; i < rows; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                VlsmAllocator.checkProgress(listener, i, rows);
+            }
+            writeRow(plan, bySize ? plan.indexBySize(i) : i);
+        }
+        if (listener != null) {
+            listener.progress(rows, rows);
+        }
+    }
+
+    // Called once before the rows of each plan
+    protected void startPlan(VlsmPlan plan) throws IOException {
+    }
+
+    protected void startPlan(Ipv6Plan plan) throws IOException {
+    }
+
+    protected abstract void writeRow(VlsmPlan plan, Subnet subnet) throws IOException;
+
+    // Row index of an IPv6 plan, in input order
+    protected abstract void writeRow(Ipv6Plan plan, int index) throws IOException;
+
+    // Write the content of line to the output
+    protected void writeLine() throws IOException {
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[length * 2];
+        }
+        line.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
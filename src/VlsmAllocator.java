@@ -0,0 +1,315 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * VLSM allocation engine.
+ * Takes a parent network and a list of subnet requirements (name + hosts) and
+ * returns an immutable VlsmPlan. It has no UI dependency so the Swing window,
+ * the CLI and batch jobs all share the same logic.
+ */
+public final class VlsmAllocator {
+    // Progress is reported and interruption checked every PROGRESS_STEP subnets
+    private static final int PROGRESS_STEP = 4096;
+
+    /**
+     * Receives allocation progress, e.g. to drive a progress bar.
+     */
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    private VlsmAllocator() {
+    }
+
+    public static VlsmPlan allocate(String networkAddress, int mask, List<Subnet> requirements) {
+        return allocate(networkAddress, mask, requirements, StandardPlacement.FIRST_FIT);
+    }
+
+    public static VlsmPlan allocate(String networkAddress, int mask, List<Subnet> requirements,
+                                    PlacementStrategy strategy) {
+        return allocate(networkAddress, mask, requirements, null, strategy);
+    }
+
+    // Same, leaving the ranges of exclusions (may be null) out of the parent
+    public static VlsmPlan allocate(String networkAddress, int mask, List<Subnet> requirements,
+                                    Exclusions exclusions, PlacementStrategy strategy) {
+        if (networkAddress == null || networkAddress.trim().isEmpty()) {
+            throw new IllegalArgumentException("Adresse réseau ne peut pas être null ou vide.");
+        }
+        if (mask < 0 || mask > 32) {
+            throw new IllegalArgumentException("Masque invalide: " + mask + ". Doit être entre 0 et 32.");
+        }
+        // Apply the mask to get the actual network address
+        return allocate(Ipv4.parseAddress(networkAddress) & Ipv4.maskBits(mask), mask, requirements, exclusions,
+                        strategy, null);
+    }
+
+    public static VlsmPlan allocate(int network, int mask, List<Subnet> requirements) {
+        return allocate(network, mask, requirements, null);
+    }
+
+    /**
+     * Same as allocate(int, int, List), reporting progress to listener (may be null).
+     * If the calling thread is interrupted the computation stops with a
+     * CancellationException, so a SwingWorker can be cancelled mid-plan.
+     */
+    public static VlsmPlan allocate(int network, int mask, List<Subnet> requirements, ProgressListener listener) {
+        return allocate(network, mask, requirements, StandardPlacement.FIRST_FIT, listener);
+    }
+
+    /**
+     * Same as allocate(int, int, List, ProgressListener), choosing blocks with
+     * the given placement strategy instead of first fit, largest first.
+     */
+    public static VlsmPlan allocate(int network, int mask, List<Subnet> requirements, PlacementStrategy strategy,
+                                    ProgressListener listener) {
+        return allocate(network, mask, requirements, null, strategy, listener);
+    }
+
+    /**
+     * Same, leaving the ranges of exclusions (may be null) out of the parent:
+     * the buddy allocator starts with only the complement of the excluded
+     * blocks free, so subnets are taken from the free blocks around them.
+     */
+    public static VlsmPlan allocate(int network, int mask, List<Subnet> requirements, Exclusions exclusions,
+                                    PlacementStrategy strategy, ProgressListener listener) {
+        if (requirements == null || requirements.isEmpty()) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("Stratégie de placement ne peut pas être null.");
+        }
+        long[] excluded = excludedBlocks(network, mask, exclusions);
+        BuddyAllocator space = new BuddyAllocator(network, mask, excluded);
+        long excludedAddresses = (1L << (32 - mask)) - space.getFreeAddresses();
+
+        int n = requirements.size();
+        int[] order = allocationOrder(requirements);
+        int[] placement = strategy.placementOrder(requirements, order);
+        long totalRequiredHosts = totalHosts(requirements);
+
+        // Take each block from the buddy allocator so every subnet is aligned
+        // on its own size and stays inside the parent
+        Subnet[] allocated = new Subnet[n];
+        for (int i = 0; i < n; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                checkProgress(listener, i, n);
+            }
+            int index = placement[i];
+            allocated[index] = place(space, strategy, requirements.get(index), index, mask);
+        }
+
+        if (listener != null) {
+            listener.progress(n, n);
+        }
+        long usedAddresses = (1L << (32 - mask)) - space.getFreeAddresses() - excludedAddresses;
+        return new VlsmPlan(network, mask, allocated, order, totalRequiredHosts, usedAddresses, excluded);
+    }
+
+    public static VlsmPlan replan(VlsmPlan previous, int network, int mask, List<Subnet> requirements) {
+        return replan(previous, network, mask, requirements, null);
+    }
+
+    /**
+     * Incremental re-plan: requirements whose name is in the previous plan
+     * (ignoring case, like SubnetNameIndex) keep their block when it still
+     * lies in the parent. A subnet that needs fewer
+     * addresses keeps its network address on the smaller block; one that needs
+     * more grows in place if the enclosing block is free, otherwise it moves.
+     * Only new and moved subnets are placed in the remaining free space,
+     * largest first. Removed subnets simply release their blocks.
+     */
+    public static VlsmPlan replan(VlsmPlan previous, int network, int mask, List<Subnet> requirements,
+                                  ProgressListener listener) {
+        return replan(previous, network, mask, requirements, StandardPlacement.FIRST_FIT, listener);
+    }
+
+    // Same as replan(VlsmPlan, int, int, List, ProgressListener), placing new and moved subnets with strategy
+    public static VlsmPlan replan(VlsmPlan previous, int network, int mask, List<Subnet> requirements,
+                                  PlacementStrategy strategy, ProgressListener listener) {
+        return replan(previous, network, mask, requirements, null, strategy, listener);
+    }
+
+    /**
+     * Same, leaving the ranges of exclusions (may be null) out of the parent;
+     * a subnet whose previous block now overlaps an exclusion moves. Ranges
+     * excluded from the previous plan stay excluded, so a plan loaded back
+     * from a PlanStore never hands them out.
+     */
+    public static VlsmPlan replan(VlsmPlan previous, int network, int mask, List<Subnet> requirements,
+                                  Exclusions exclusions, PlacementStrategy strategy, ProgressListener listener) {
+        if (previous == null) {
+            return allocate(network, mask, requirements, exclusions, strategy, listener);
+        }
+        if (requirements == null || requirements.isEmpty()) {
+            throw new IllegalArgumentException("Aucun subnet à calculer.");
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("Stratégie de placement ne peut pas être null.");
+        }
+        if (previous.getExcludedBlocks().length > 0) {
+            exclusions = Exclusions.union(exclusions, previous.getExcludedBlocks());
+        }
+        long[] excluded = excludedBlocks(network, mask, exclusions);
+        BuddyAllocator space = new BuddyAllocator(network, mask, excluded);
+        long excludedAddresses = (1L << (32 - mask)) - space.getFreeAddresses();
+        // Keyed like SubnetNameIndex, so a subnet renamed only in case keeps its block
+        Map<String, Subnet> placed = new HashMap<>(previous.size() * 2);
+        for (int i = 0; i < previous.size(); i++) {
+            placed.put(SubnetNameIndex.fold(previous.get(i).getName()), previous.get(i));
+        }
+
+        int n = requirements.size();
+        int[] order = allocationOrder(requirements);
+        long totalRequiredHosts = totalHosts(requirements);
+
+        // First pass: hold on to every block that stays, at most at its current size
+        Subnet[] allocated = new Subnet[n];
+        Subnet[] growing = new Subnet[n];
+        for (int i = 0; i < n; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                checkProgress(listener, i, n);
+            }
+            Subnet requirement = requirements.get(i);
+            int subnetMask = prefixFor(requirement.getHotes());
+            Subnet old = placed.remove(SubnetNameIndex.fold(requirement.getName()));
+            if (old == null || old.getMasque() < mask || (old.getReseau() & Ipv4.maskBits(mask)) != network) {
+                continue;
+            }
+            int keptMask = Math.max(subnetMask, old.getMasque());
+            if (!space.reserve(old.getReseau(), keptMask)) {
+                continue;
+            }
+            if (keptMask == subnetMask) {
+                allocated[i] = requirement.allocate(old.getReseau(), subnetMask);
+            } else {
+                growing[i] = old;
+            }
+        }
+
+        // Second pass, largest first: grow in place when the enclosing block is free
+        for (int i = 0; i < n; i++) {
+            int index = order[i];
+            Subnet old = growing[index];
+            if (old == null) {
+                continue;
+            }
+            Subnet requirement = requirements.get(index);
+            int subnetMask = prefixFor(requirement.getHotes());
+            space.free(old.getReseau(), old.getMasque());
+            int address = old.getReseau() & Ipv4.maskBits(subnetMask);
+            if (subnetMask >= mask && space.reserve(address, subnetMask)) {
+                allocated[index] = requirement.allocate(address, subnetMask);
+            }
+        }
+
+        // Last pass, in the strategy's order: new and moved subnets go into the free space left
+        int[] placement = strategy.placementOrder(requirements, order);
+        for (int i = 0; i < n; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                checkProgress(listener, i, n);
+            }
+            int index = placement[i];
+            if (allocated[index] == null) {
+                allocated[index] = place(space, strategy, requirements.get(index), index, mask);
+            }
+        }
+
+        if (listener != null) {
+            listener.progress(n, n);
+        }
+        long usedAddresses = (1L << (32 - mask)) - space.getFreeAddresses() - excludedAddresses;
+        return new VlsmPlan(network, mask, allocated, order, totalRequiredHosts, usedAddresses, excluded);
+    }
+
+    /**
+     * Indexes of the requirements in allocation order: by required hosts in
+     * descending order (VLSM requirement), equal sizes keeping their input
+     * order. Each sort key packs the inverted host count above the input
+     * index so a primitive sort does it.
+     */
+    static int[] allocationOrder(List<Subnet> requirements) {
+        int n = requirements.size();
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            Subnet requirement = requirements.get(i);
+            if (requirement == null) {
+                throw new IllegalArgumentException("Subnet " + (i + 1) + " est null.");
+            }
+            keys[i] = ((long) (Subnet.MAX_HOTES - requirement.getHotes()) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    static long totalHosts(List<Subnet> requirements) {
+        long total = 0;
+        for (int i = 0; i < requirements.size(); i++) {
+            total += requirements.get(i).getHotes();
+        }
+        return total;
+    }
+
+    // Excluded part of the parent as sorted aligned blocks, taken before any subnet is placed
+    private static long[] excludedBlocks(int network, int mask, Exclusions exclusions) {
+        if (exclusions == null || mask < 0 || mask > 32) {
+            return new long[0];
+        }
+        return exclusions.blocksIn(network, mask);
+    }
+
+    // Take the free block strategy picks for requirement, or fail with its index
+    private static Subnet place(BuddyAllocator space, PlacementStrategy strategy, Subnet requirement,
+                                int index, int mask) {
+        int subnetMask = prefixFor(requirement.getHotes());
+        if (subnetMask < mask) {
+            throw new AllocationException(
+                "Le subnet '" + requirement.getName() + "' nécessite un masque /" + subnetMask +
+                " qui est moins restrictif que le masque original /" + mask, index, requirement);
+        }
+
+        long address = strategy.place(space, subnetMask);
+        if (address < 0) {
+            throw new AllocationException(
+                "Espace d'adressage insuffisant pour le subnet '" + requirement.getName() + "' (/" + subnetMask +
+                ", " + blockSize(requirement.getHotes()) + " adresses). Disponible: " +
+                space.getFreeAddresses() + " adresses.", index, requirement);
+        }
+        return requirement.allocate((int) address, subnetMask);
+    }
+
+    static void checkProgress(ProgressListener listener, int done, int total) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Calcul annulé.");
+        }
+        if (listener != null) {
+            listener.progress(done, total);
+        }
+    }
+
+    // Host bits for a subnet: smallest b with 2^b >= hotes + 2 (network and broadcast included).
+    // 2^b >= hotes + 2  <=>  2^b > hotes + 1, i.e. the bit length of hotes + 1.
+    static int hostBits(int hotes) {
+        if (hotes <= 0 || hotes > Subnet.MAX_HOTES) {
+            throw new IllegalArgumentException("Nombre d'hôtes invalide: " + hotes);
+        }
+        return 32 - Integer.numberOfLeadingZeros(hotes + 1);
+    }
+
+    // Prefix length of the smallest subnet holding hotes hosts
+    static int prefixFor(int hotes) {
+        return 32 - hostBits(hotes);
+    }
+
+    // Number of addresses in the smallest subnet holding hotes hosts
+    static long blockSize(int hotes) {
+        return 1L << hostBits(hotes);
+    }
+}
@@ -0,0 +1,534 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Non-interactive mode of the VLSM CLI.
+ * Streams requirements from a file or stdin, one per line, either as CSV
+ * ("name,hosts") or as JSON Lines ({"name": "...", "hosts": n}). A line
+ * "@a.b.c.d/p" or {"network": "a.b.c.d/p"} starts a new plan for another
+ * parent network, IPv4 or IPv6 ("@2001:db8::/48"); in an IPv6 plan the host
+ * count of each line is a number of /64 networks (see Ipv6Allocator).
+ * Each plan is computed and written out as soon as the next one starts, so
+ * memory is bounded by the current plan, not by the input.
+ * Lines that are empty or start with '#' are ignored.
+ * With --threads n, finished plans are buffered in small windows and solved
+ * in parallel by ParallelPlanner, then written in input order.
+ * --format bin writes BinaryPlanWriter sections, one per plan.
+ * Plans with the same shape (parent prefix and block sizes) are rebased from
+ * a PlanCache of --cache subnets (default DEFAULT_CACHE, 0 disables it).
+ * With --plan name the input holds a single plan, re-planned incrementally
+ * against the one saved under that name in the PlanStore, then saved back.
+ * --strategy picks the PlacementStrategy (first-fit by default); the cache
+ * only serves the built-in ones. On an empty parent the built-in strategies
+ * give the same plan: they only differ once the space is fragmented, i.e.
+ * with --exclude or when --plan keeps the blocks of a stored plan.
+ * With --pool, a plan started by "@pool" (or {"network": "pool"}), or the
+ * input itself when no parent is given, gets the smallest parent that holds
+ * it, taken first fit from the free supernets of the SupernetPool.
+ * --exclude lists ranges left out of every IPv4 parent (see Exclusions), or
+ * reads them from a file with --exclude @file; the cache is then not used.
+ */
+final class VlsmBatch {
+    static final String USAGE =
+        "Usage: java VlsmCli --batch <fichier|-> [--network a.b.c.d/p] [--output <fichier[.gz]|->] [--format csv|jsonl|bin] [--threads n]\n"
+        + "       [--cache subnets] [--plan nom [--store dossier]] [--strategy first-fit|best-fit|gap-packing]\n"
+        + "       [--pool a.b.c.d/p[,a.b.c.d/p...]] [--exclude a.b.c.d[/p|-e.f.g.h][,...]|@fichier]\n"
+        + "Les stratégies donnent le même plan sur un parent vide; elles ne diffèrent qu'avec --exclude ou --plan.";
+
+    // Plans buffered for the parallel solver, bounded by MAX_PENDING_SUBNETS
+    private static final int MAX_PENDING_SUBNETS = 1 << 20;
+    // Subnets kept in the plan cache by default
+    static final long DEFAULT_CACHE = 1 << 20;
+
+    private final PlanWriter writer;
+    private final ForkJoinPool pool;
+    private final PlanStore store;
+    private final String planName;
+    private final PlanCache cache;
+    private final PlacementStrategy strategy;
+    private final SupernetPool supernets;
+    // Ranges left out of every IPv4 parent, null if none
+    private final Exclusions exclusions;
+    private final boolean binary;
+    private final List<ParallelPlanner.Job> pending = new ArrayList<>();
+    private final List<String> pendingLabels = new ArrayList<>();
+    private long pendingSubnets;
+    private final List<Subnet> requirements = new ArrayList<>();
+    private final SubnetNameIndex names = new SubnetNameIndex();
+    private int network;
+    private int mask = -1;
+    // Current plan takes its parent from supernets once all its requirements are read
+    private boolean pooled;
+    // Current plan is IPv6, under the parent whose upper 64 bits are network6
+    private boolean ipv6;
+    private long network6;
+    private final long[] address6 = new long[2];
+    private int batchLine;
+    private String batchError;
+    private int plans;
+    private long subnets;
+    private int errors;
+
+    private VlsmBatch(PlanWriter writer, ForkJoinPool pool, PlanCache cache, PlacementStrategy strategy,
+                      SupernetPool supernets, Exclusions exclusions, PlanStore store, String planName) {
+        this.writer = writer;
+        this.binary = writer instanceof BinaryPlanWriter;
+        this.pool = pool;
+        this.cache = cache;
+        this.strategy = strategy;
+        this.supernets = supernets;
+        this.exclusions = exclusions;
+        this.pooled = supernets != null;
+        this.store = store;
+        this.planName = planName;
+    }
+
+    static int run(String[] args) {
+        String input = null;
+        String output = "-";
+        String format = "csv";
+        String parent = null;
+        String planName = null;
+        String storeDirectory = null;
+        SupernetPool supernets = null;
+        Exclusions exclusions = null;
+        int threads = 1;
+        long cacheSize = DEFAULT_CACHE;
+        PlacementStrategy strategy = StandardPlacement.FIRST_FIT;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                System.err.println("Option incomplète: " + option + "\n" + USAGE);
+                return 2;
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--batch": input = value; break;
+                case "--output": output = value; break;
+                case "--format": format = value.toLowerCase(Locale.ROOT); break;
+                case "--network": parent = value; break;
+                case "--plan": planName = value; break;
+                case "--store": storeDirectory = value; break;
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("Nombre de threads invalide: " + value);
+                        return 2;
+                    }
+                    break;
+                case "--cache":
+                    try {
+                        cacheSize = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        cacheSize = -1;
+                    }
+                    if (cacheSize < 0) {
+                        System.err.println("Taille de cache invalide: " + value);
+                        return 2;
+                    }
+                    break;
+                case "--pool":
+                    try {
+                        supernets = SupernetPool.parse(value);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage());
+                        return 2;
+                    }
+                    break;
+                case "--exclude":
+                    try {
+                        exclusions = Exclusions.parse(value.startsWith("@")
+                            ? Files.readString(Paths.get(value.substring(1)), StandardCharsets.UTF_8) : value);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage());
+                        return 2;
+                    } catch (IOException e) {
+                        System.err.println("Lecture impossible de " + value.substring(1) + ": " + e.getMessage());
+                        return 2;
+                    }
+                    break;
+                case "--strategy":
+                    try {
+                        strategy = StandardPlacement.forName(value);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage());
+                        return 2;
+                    }
+                    break;
+                default:
+                    System.err.println("Option inconnue: " + option + "\n" + USAGE);
+                    return 2;
+            }
+        }
+        if (input == null || (!format.equals("csv") && !format.equals("jsonl") && !format.equals("bin"))
+                || (storeDirectory != null && planName == null)) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        PlanStore store = null;
+        if (planName != null) {
+            try {
+                PlanStore.checkName(planName);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return 2;
+            }
+            store = storeDirectory == null ? PlanStore.defaultStore() : new PlanStore(Paths.get(storeDirectory));
+            // One plan only, solved in place
+            threads = 1;
+        }
+
+        try (BufferedReader reader = "-".equals(input)
+                 ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                 : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+             PlanWriter writer = createWriter(output, format)) {
+            ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+            PlanCache cache = cacheSize > 0 && PlanCache.serves(strategy) && exclusions == null
+                ? new PlanCache(cacheSize) : null;
+            VlsmBatch batch = new VlsmBatch(writer, pool, cache, strategy, supernets, exclusions, store, planName);
+            try {
+                if (parent != null) {
+                    batch.startPlan(parent, 0);
+                }
+                batch.process(reader);
+            } finally {
+                if (pool != null) {
+                    pool.shutdown();
+                }
+            }
+            System.err.println("Plans calculés: " + batch.plans + ", subnets: " + batch.subnets
+                               + ", erreurs: " + batch.errors
+                               + (cache == null ? "" : ", cache: " + cache.getHits() + " trouvés / "
+                                                       + cache.getMisses() + " calculés"));
+            return batch.errors == 0 ? 0 : 1;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Erreur de validation: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("❌ Erreur d'entrée/sortie: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    private static PlanWriter createWriter(String output, String format) throws IOException {
+        if (format.equals("bin")) {
+            return new BinaryPlanWriter("-".equals(output) ? System.out : PlanExport.openBinaryStream(Paths.get(output)));
+        }
+        Writer out = "-".equals(output)
+            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+            : PlanExport.openWriter(Paths.get(output));
+        return format.equals("jsonl") ? new JsonLinesPlanWriter(out) : new CsvPlanWriter(out);
+    }
+
+    private void process(BufferedReader reader) throws IOException {
+        String line;
+        int lineNumber = 0;
+        boolean firstLine = true;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+                continue;
+            }
+            try {
+                char first = trimmed.charAt(0);
+                if (first == '@') {
+                    startPlan(trimmed.substring(1), lineNumber);
+                } else if (first == '{') {
+                    processJson(trimmed, lineNumber);
+                } else if (!(firstLine && isCsvHeader(trimmed))) {
+                    addRequirement(parseCsv(trimmed));
+                }
+            } catch (IllegalArgumentException e) {
+                if (batchError == null) {
+                    batchError = "ligne " + lineNumber + ": " + e.getMessage();
+                }
+            }
+            firstLine = false;
+        }
+        finishPlan();
+        solvePending();
+    }
+
+    private void processJson(String line, int lineNumber) throws IOException {
+        Map<String, Object> object = Json.parseObject(line);
+        Object parent = object.get("network");
+        if (parent != null) {
+            startPlan(parent.toString(), lineNumber);
+            return;
+        }
+        Object name = object.get("name");
+        Object hosts = object.get("hosts");
+        if (!(name instanceof String) || !(hosts instanceof Long)) {
+            throw new IllegalArgumentException("\"name\" (texte) et \"hosts\" (entier) attendus.");
+        }
+        long value = (Long) hosts;
+        if (value <= 0 || value > Subnet.MAX_HOTES) {
+            throw new IllegalArgumentException("Nombre d'hôtes hors limites: " + value);
+        }
+        addRequirement(new Subnet((String) name, (int) value));
+    }
+
+    private void startPlan(String cidr, int lineNumber) throws IOException {
+        finishPlan();
+        batchLine = lineNumber;
+        pooled = false;
+        if (supernets != null && cidr.trim().equals("pool")) {
+            ipv6 = false;
+            mask = -1;
+            pooled = true;
+            return;
+        }
+        int slash = cidr.indexOf('/');
+        ipv6 = cidr.indexOf(':') >= 0;
+        if (slash < 0) {
+            mask = -1;
+            throw new IllegalArgumentException("Réseau parent attendu au format a.b.c.d/p: " + cidr);
+        }
+        try {
+            mask = Integer.parseInt(cidr.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            mask = -1;
+            throw new IllegalArgumentException("Masque invalide: " + cidr);
+        }
+        if (ipv6) {
+            if (mask < 1 || mask > 64) {
+                mask = -1;
+                throw new IllegalArgumentException("Préfixe IPv6 invalide (1 à 64): " + cidr);
+            }
+            if (!Ipv6.parse(cidr, 0, slash, address6)) {
+                mask = -1;
+                throw new IllegalArgumentException("Format d'adresse IPv6 invalide: " + cidr);
+            }
+            network6 = address6[0] & Ipv6.maskHigh(mask);
+            return;
+        }
+        if (mask < 0 || mask > 32) {
+            mask = -1;
+            throw new IllegalArgumentException("Masque invalide: " + cidr);
+        }
+        long address = Ipv4.parse(cidr, 0, slash);
+        if (address == Ipv4.INVALID) {
+            mask = -1;
+            throw new IllegalArgumentException("Format d'adresse IP invalide: " + cidr);
+        }
+        network = (int) address & Ipv4.maskBits(mask);
+    }
+
+    private void addRequirement(Subnet requirement) {
+        if (!names.add(requirement.getName())) {
+            throw new IllegalArgumentException("Le nom '" + requirement.getName() + "' existe déjà dans ce plan.");
+        }
+        requirements.add(requirement);
+    }
+
+    // Compute and write the current plan, then reset for the next one
+    private void finishPlan() throws IOException {
+        // Parent taken from supernets, given back if the plan fails
+        boolean parentTaken = false;
+        try {
+            if (batchError == null && requirements.isEmpty()) {
+                return;
+            }
+            if (batchError == null && mask < 0 && !pooled) {
+                batchError = "aucun réseau parent (utiliser --network ou une ligne @a.b.c.d/p)";
+            }
+            if (batchError != null) {
+                reportError(batchError);
+                return;
+            }
+            if (pooled) {
+                takeParent();
+                parentTaken = true;
+            }
+            if (ipv6) {
+                solveIpv6();
+                return;
+            }
+            if (store != null) {
+                storePlan();
+                return;
+            }
+            // A pooled parent always holds its plan unless exclusions get in the way: such a
+            // plan is solved in line, so a failure gives the parent back before the next plan
+            if (pool == null || parentTaken && exclusions != null) {
+                solvePending();
+                VlsmPlan plan = cache == null
+                    ? VlsmAllocator.allocate(network, mask, requirements, exclusions, strategy, null)
+                    : cache.allocate(network, mask, requirements);
+                writer.write(plan);
+                writer.flush();
+                plans++;
+                subnets += plan.size();
+                return;
+            }
+            pending.add(new ParallelPlanner.Job(network, mask, new ArrayList<>(requirements), exclusions));
+            pendingLabels.add(planLabel());
+            pendingSubnets += requirements.size();
+            if (pending.size() >= pool.getParallelism() * 16 || pendingSubnets >= MAX_PENDING_SUBNETS) {
+                solvePending();
+            }
+        } catch (IllegalArgumentException e) {
+            if (parentTaken) {
+                // Does not fit its parent after all (exclusions): the parent goes back to the pool
+                supernets.release(network, mask);
+            }
+            reportError(e.getMessage());
+        } finally {
+            requirements.clear();
+            names.clear();
+            batchError = null;
+        }
+    }
+
+    // Smallest parent holding the current plan, from the first supernet of the pool large enough
+    private void takeParent() {
+        Feasibility feasibility = Feasibility.of(requirements);
+        long parent = supernets.take(feasibility);
+        if (parent < 0) {
+            int minimum = feasibility.getMinimumPrefix();
+            throw new IllegalArgumentException("aucun supernet libre du pool ne peut contenir ce plan ("
+                                               + (minimum < 0 ? "plus que l'espace IPv4 entier"
+                                                              : "masque /" + minimum + " au minimum") + ").");
+        }
+        network = (int) parent;
+        mask = feasibility.getMinimumPrefix();
+    }
+
+    // IPv6 plans are solved in line, after the IPv4 plans still buffered
+    private void solveIpv6() throws IOException {
+        if (binary || store != null) {
+            throw new IllegalArgumentException("les plans IPv6 ne sont pas pris en charge avec "
+                                               + (binary ? "--format bin." : "--plan."));
+        }
+        solvePending();
+        Ipv6Plan plan = Ipv6Allocator.allocate(network6, mask, requirements, null);
+        writer.write(plan);
+        writer.flush();
+        plans++;
+        subnets += plan.size();
+    }
+
+    // Re-plan against the stored plan, save it, then write it like any other plan
+    private void storePlan() throws IOException {
+        if (plans + errors > 0) {
+            throw new IllegalArgumentException("--plan n'accepte qu'un seul réseau parent par entrée.");
+        }
+        VlsmPlan previous = store.load(planName);
+        VlsmPlan plan = VlsmAllocator.replan(previous, network, mask, requirements, exclusions, strategy, null);
+        store.save(planName, plan);
+        writer.write(plan);
+        writer.flush();
+        plans++;
+        subnets += plan.size();
+        if (previous != null) {
+            System.err.println("Plan '" + planName + "': " + PlanStore.countUnchanged(previous, plan) + "/"
+                               + plan.size() + " subnets inchangés.");
+        }
+    }
+
+    // Solve the buffered plans in parallel and write them in input order
+    private void solvePending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ParallelPlanner.Result> results = ParallelPlanner.solve(pending, pool, cache, strategy);
+        for (int i = 0; i < results.size(); i++) {
+            ParallelPlanner.Result result = results.get(i);
+            if (result.isSuccess()) {
+                writer.write(result.getPlan());
+                plans++;
+                subnets += result.getPlan().size();
+            } else {
+                errors++;
+                System.err.println("❌ Plan " + pendingLabels.get(i) + ": " + result.getError().getMessage());
+            }
+        }
+        writer.flush();
+        pending.clear();
+        pendingLabels.clear();
+        pendingSubnets = 0;
+    }
+
+    private void reportError(String message) throws IOException {
+        // Keep stderr in input order with the plans still buffered
+        solvePending();
+        errors++;
+        System.err.println("❌ Plan " + planLabel() + ": " + message);
+    }
+
+    private String planLabel() {
+        String parent = mask < 0 ? "?" : (ipv6 ? Ipv6.toString(network6, 0) : Ipv4.toString(network)) + "/" + mask;
+        return parent + " (ligne " + batchLine + ")";
+    }
+
+    private static boolean isCsvHeader(String line) {
+        int comma = line.lastIndexOf(',');
+        if (comma < 0) {
+            return false;
+        }
+        String hosts = line.substring(comma + 1).trim();
+        return !hosts.isEmpty() && !Character.isDigit(hosts.charAt(0));
+    }
+
+    // Parse "name,hosts"; the name may be quoted with doubled inner quotes
+    static Subnet parseCsv(String line) {
+        String name;
+        int pos;
+        if (line.charAt(0) == '"') {
+            StringBuilder sb = new StringBuilder();
+            pos = 1;
+            while (true) {
+                if (pos >= line.length()) {
+                    throw new IllegalArgumentException("Guillemet non fermé: " + line);
+                }
+                char c = line.charAt(pos++);
+                if (c == '"') {
+                    if (pos < line.length() && line.charAt(pos) == '"') {
+                        sb.append('"');
+                        pos++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            name = sb.toString();
+            while (pos < line.length() && line.charAt(pos) == ' ') {
+                pos++;
+            }
+            if (pos >= line.length() || line.charAt(pos) != ',') {
+                throw new IllegalArgumentException("Format attendu: nom,hôtes");
+            }
+        } else {
+            pos = line.indexOf(',');
+            if (pos < 0) {
+                throw new IllegalArgumentException("Format attendu: nom,hôtes");
+            }
+            name = line.substring(0, pos);
+        }
+        String hosts = line.substring(pos + 1).trim();
+        try {
+            return new Subnet(name, Integer.parseInt(hosts));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nombre d'hôtes invalide: " + hosts);
+        }
+    }
+}
@@ -1,4 +1,3 @@
-import java.util.Comparator;
 import java.util.Scanner;
 import java.util.Arrays;
 
@@ -7,64 +6,26 @@ import java.util.Arrays;
  * This tool calculates Variable Length Subnet Masking (VLSM) for a given IP address and subnet mask.
  * It allows users to define custom subnet names and host requirements, ensuring unique names.
  * The tool validates inputs, handles errors gracefully, and provides detailed output.
+ * IPv6 parents are accepted too, with requirements counted in /64 networks.
+ * Run with --batch to stream requirements from a file or stdin instead (see VlsmBatch);
+ * add --plan name to re-plan against the plan stored under that name (see PlanStore).
  */
 
 public class VlsmCli {
     private static final int MAX_SUBNETS = 1000;
-    private static final int MAX_HOST_COUNT = 1073741822; // 2^30 - 2
+    private static final int MAX_HOST_COUNT = Subnet.MAX_HOTES; // 2^30 - 2
 
     // Convert mask to IP address with validation
     static String convertMaskToIp(int mask) {
         if (mask < 0 || mask > 32) {
             throw new IllegalArgumentException("Masque invalide: " + mask + ". Doit être entre 0 et 32.");
         }
-        
-        if (mask == 0) {
-            return "0.0.0.0";
-        }
-        
-        long maskValue = 0xFFFFFFFFL << (32 - mask);
-        maskValue &= 0xFFFFFFFFL; // Ensure it stays within 32-bit range
-        
-        return ((maskValue >> 24) & 0xFF) + "." +
-               ((maskValue >> 16) & 0xFF) + "." +
-               ((maskValue >> 8) & 0xFF) + "." +
-               (maskValue & 0xFF);
+        return Ipv4.maskToString(mask);
     }
 
     //  IP address verification
     static boolean verif(String ip) {
-        if (ip == null || ip.trim().isEmpty()) {
-            return false;
-        }
-        
-        ip = ip.trim();
-        String[] ipTab = ip.split("\\.");
-        
-        if (ipTab.length != 4) {
-            return false;
-        }
-        
-        try {
-            for (String part : ipTab) {
-                if (part.isEmpty()) {
-                    return false;
-                }
-                
-                // Check for leading zeros (except for "0")
-                if (part.length() > 1 && part.startsWith("0")) {
-                    return false;
-                }
-                
-                int value = Integer.parseInt(part);
-                if (value < 0 || value > 255) {
-                    return false;
-                }
-            }
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        return Ipv4.isValid(ip);
     }
 
     //  IP increment function
@@ -73,19 +34,11 @@ public class VlsmCli {
             throw new IllegalArgumentException("Adresse IP ne peut pas être null ou vide.");
         }
         
-        if (!verif(ip)) {
+        long ipAsLong = Ipv4.parse(ip);
+        if (ipAsLong == Ipv4.INVALID) {
             throw new IllegalArgumentException("Format d'adresse IP invalide: " + ip);
         }
 
-        // Split the IP address into octets
-        String[] parts = ip.split("\\.");
-        
-        // Convert octets to long to handle large increments
-        long ipAsLong = 0;
-        for (int i = 0; i < 4; i++) {
-            ipAsLong = (ipAsLong << 8) + Integer.parseInt(parts[i]);
-        }
-
         // Apply increment
         long newIpAsLong = ipAsLong + increment;
 
@@ -97,37 +50,18 @@ public class VlsmCli {
             throw new IllegalArgumentException("Adresse IP overflow. Résultat: " + newIpAsLong);
         }
 
-        // Convert back to IP format
-        return String.format("%d.%d.%d.%d",
-                (newIpAsLong >> 24) & 0xFF,
-                (newIpAsLong >> 16) & 0xFF,
-                (newIpAsLong >> 8) & 0xFF,
-                newIpAsLong & 0xFF);
+        return Ipv4.toString((int) newIpAsLong);
     }
 
     // Check if an IP address is within a valid range for subnetting
     static boolean isValidNetworkAddress(String ip, int mask) {
-        if (!verif(ip) || mask < 0 || mask > 32) {
+        long ipAsLong = Ipv4.parse(ip);
+        if (ipAsLong == Ipv4.INVALID || mask < 0 || mask > 32) {
             return false;
         }
         
-        try {
-            String[] parts = ip.split("\\.");
-            long ipAsLong = 0;
-            for (int i = 0; i < 4; i++) {
-                ipAsLong = (ipAsLong << 8) + Integer.parseInt(parts[i]);
-            }
-            
-            // Check if it's a network address
-            if (mask == 32) return true;
-            
-            long networkMask = 0xFFFFFFFFL << (32 - mask);
-            networkMask &= 0xFFFFFFFFL;
-            
-            return (ipAsLong & ~networkMask) == 0;
-        } catch (Exception e) {
-            return false;
-        }
+        // Check if it's a network address
+        return ((int) ipAsLong & ~Ipv4.maskBits(mask)) == 0;
     }
 
     // Safe integer input with validation
@@ -166,17 +100,81 @@ public class VlsmCli {
         }
     }
 
-    // Validate subnet name to avoid duplicates
-    static boolean isSubnetNameUnique(String name, Subnet[] subnets, int currentIndex) {
-        for (int i = 0; i < currentIndex; i++) {
-            if (subnets[i] != null && subnets[i].getOriginalName().equalsIgnoreCase(name)) {
-                return false;
+    // Optional ranges to leave out of the parent; an empty line means none
+    static Exclusions getExclusionsInput(Scanner scanner) {
+        while (true) {
+            System.out.print("\nPlages à exclure (ex. 10.0.0.1, 10.0.4.0/22, 10.0.9.10-10.0.9.99), vide pour aucune : ");
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return null;
+            }
+            try {
+                return Exclusions.parse(input);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Erreur: " + e.getMessage());
             }
         }
-        return true;
+    }
+
+    // Interactive IPv6 plan: requirements are counted in /64 networks
+    static void runIpv6(Scanner scanner, String ip) {
+        int prefix = getSafeIntInput(scanner, "Donner le préfixe de ce réseau IPv6 (1-64) : ", 1, 64);
+        int n = getSafeIntInput(scanner, "Donner le nombre de subnets (1-" + MAX_SUBNETS + ") : ", 1, MAX_SUBNETS);
+
+        Subnet[] subnetTab = new Subnet[n];
+        SubnetNameIndex names = new SubnetNameIndex(n);
+        for (int i = 0; i < n; i++) {
+            System.out.println("\n--- Configuration du Subnet " + (i + 1) + " ---");
+            String subnetName;
+            while (true) {
+                subnetName = getSafeStringInput(scanner, "Nom du subnet " + (i + 1) + " : ");
+                if (names.add(subnetName)) {
+                    break;
+                }
+                System.out.println("Ce nom de subnet existe déjà. Veuillez choisir un nom unique.");
+            }
+            int count = getSafeIntInput(scanner,
+                "Nombre de réseaux /64 pour '" + subnetName + "' (1-" + MAX_HOST_COUNT + ") : ", 1, MAX_HOST_COUNT);
+            subnetTab[i] = new Subnet(subnetName, count);
+        }
+
+        Ipv6Plan plan = Ipv6Allocator.allocate(ip, prefix, Arrays.asList(subnetTab));
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("              RÉSULTATS VLSM IPv6");
+        System.out.println("=".repeat(60));
+        System.out.println("Adresse réseau originale: " + plan.getAddresseReseau() + "/" + prefix);
+        System.out.println("Nombre total de subnets: " + n);
+        System.out.println("Réseaux /64 utilisés: " + plan.getUsedNetworks() + "/"
+                           + Long.toUnsignedString(plan.getAvailableNetworks()));
+        System.out.println("=".repeat(60));
+        for (int i = 0; i < plan.size(); i++) {
+            int index = plan.indexBySize(i);
+            System.out.printf("%-20s | /%2d | %-24s | /64: %8d/%8d%n",
+                plan.getName(index),
+                plan.getPrefix(index),
+                Ipv6.toString(plan.getNetwork(index), 0),
+                plan.getRequiredNetworks(index),
+                plan.getAvailableNetworks(index));
+        }
     }
 
     public static void main(String[] args) {
+        // --serve starts the HTTP planning service, any other argument the non-interactive batch mode
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int status = PlanServer.run(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        if (args.length > 0) {
+            int status = VlsmBatch.run(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         try {
@@ -186,10 +184,14 @@ public class VlsmCli {
             String ip;
             while (true) {
                 ip = getSafeStringInput(scanner, "Donner l'adresse IP que vous voulez subdiviser : ");
-                if (verif(ip)) {
+                if (verif(ip) || Ipv6.isValid(ip)) {
                     break;
                 }
-                System.out.println("Format d'adresse IP invalide. Format attendu: xxx.xxx.xxx.xxx (0-255 pour chaque octet)");
+                System.out.println("Format d'adresse IP invalide. Format attendu: xxx.xxx.xxx.xxx (0-255 pour chaque octet) ou IPv6 (ex. 2001:db8::)");
+            }
+            if (Ipv6.isValid(ip)) {
+                runIpv6(scanner, ip);
+                return;
             }
 
             // Get subnet mask with validation
@@ -197,14 +199,15 @@ public class VlsmCli {
 
             // Validate that the IP is a proper network address
             if (!isValidNetworkAddress(ip, mask)) {
-                System.out.println("Attention: L'adresse IP donnée pourrait ne pas être une adresse réseau valide pour le masque /" + mask);
-                System.out.println("Continuation avec l'adresse donnée...\n");
+                System.out.println("Attention: L'adresse IP donnée n'est pas une adresse réseau valide pour le masque /" + mask);
+                System.out.println("Continuation avec l'adresse réseau correspondante...\n");
             }
 
             // Get number of subnets with reasonable limits
             int n = getSafeIntInput(scanner, "Donner le nombre de subnets (1-" + MAX_SUBNETS + ") : ", 1, MAX_SUBNETS);
             
             Subnet[] subnetTab = new Subnet[n];
+            SubnetNameIndex names = new SubnetNameIndex(n);
 
             // Initialize subnets with custom names and host requirements
             System.out.println("\n=== Configuration des Subnets ===");
@@ -215,7 +218,8 @@ public class VlsmCli {
                 String subnetName;
                 while (true) {
                     subnetName = getSafeStringInput(scanner, "Nom du subnet " + (i + 1) + " : ");
-                    if (isSubnetNameUnique(subnetName, subnetTab, i)) {
+                    // Validate subnet name to avoid duplicates
+                    if (!names.contains(subnetName)) {
                         break;
                     }
                     System.out.println("Ce nom de subnet existe déjà. Veuillez choisir un nom unique.");
@@ -229,6 +233,7 @@ public class VlsmCli {
                             1, MAX_HOST_COUNT);
                         
                         subnetTab[i] = new Subnet(subnetName, hotes);
+                        names.add(subnetTab[i].getName());
                         System.out.println("✓ Subnet '" + subnetName + "' configuré avec " + hotes + " hôtes.");
                         break;
                     } catch (IllegalArgumentException e) {
@@ -237,102 +242,49 @@ public class VlsmCli {
                 }
             }
 
-            // Create a copy of the original order for display purposes
-            Subnet[] originalOrder = new Subnet[n];
-            for (int i = 0; i < n; i++) {
-                originalOrder[i] = subnetTab[i];
-            }
-
-            // Sort subnets by number of hosts (descending order) for calculation
-            Arrays.sort(subnetTab, Comparator.comparingInt(Subnet::getHosts).reversed());
+            Exclusions exclusions = getExclusionsInput(scanner);
 
-            // Calculate total hosts needed
-            long totalHostsNeeded = 0;
-            for (Subnet subnet : subnetTab) {
-                int hotes = subnet.getHosts();
-                int hostBits = (int) Math.ceil(Math.log(hotes + 2) / Math.log(2));
-                totalHostsNeeded += Math.pow(2, hostBits);
-            }
-
-            // Check if available address space is sufficient
-            long availableAddresses = (long) Math.pow(2, 32 - mask);
-            if (totalHostsNeeded > availableAddresses) {
-                throw new IllegalArgumentException(
-                    "Espace d'adressage insuffisant. Besoin: " + totalHostsNeeded + 
-                    ", Disponible: " + availableAddresses + " adresses.");
-            }
+            // Capacity check before allocating: says which mask would be needed
+            Feasibility.of(Arrays.asList(subnetTab)).check(mask);
 
             System.out.println("\n=== Calcul des subnets (ordre par taille décroissante) ===");
 
-            // Calculate and assign subnet details
-            String currentIp = ip;
-            for (int i = 0; i < subnetTab.length; i++) {
-                Subnet subnet = subnetTab[i];
-                try {
-                    int hotes = subnet.getHosts();
-                    int hostBits = (int) Math.ceil(Math.log(hotes + 2) / Math.log(2));
-                    int subnetMask = 32 - hostBits;
-
-                    // Validate subnet mask doesn't exceed original mask
-                    if (subnetMask < mask) {
-                        throw new IllegalArgumentException(
-                            "Le subnet '" + subnet.getName() + "' nécessite un masque /" + subnetMask + 
-                            " qui est moins restrictif que le masque original /" + mask);
-                    }
-
-                    int subnetSize = (int) Math.pow(2, hostBits);
-
-                    // Network address
-                    subnet.setAddresseReseau(currentIp);
-
-                    // Broadcast address
-                    String broadcastAddress = incrementIp(currentIp, subnetSize - 1);
-                    subnet.setAddresseBroadcast(broadcastAddress);
-
-                    // Usable IP range
-                    String firstUsable = incrementIp(currentIp, 1);
-                    String lastUsable = incrementIp(broadcastAddress, -1);
-                    subnet.setPremAdd(firstUsable);
-                    subnet.setDernAdd(lastUsable);
-
-                    // Subnet mask
-                    subnet.setMasque(subnetMask);
-
-                    // Update current IP for the next subnet
-                    currentIp = incrementIp(currentIp, subnetSize);
-
-                    System.out.println("✓ Subnet '" + subnet.getName() + "' calculé avec succès.");
-
-                } catch (Exception e) {
-                    throw new RuntimeException("Erreur lors du calcul du subnet '" + subnet.getName() + "': " + e.getMessage(), e);
-                }
+            VlsmPlan plan = VlsmAllocator.allocate(ip, mask, Arrays.asList(subnetTab), exclusions,
+                                                   StandardPlacement.FIRST_FIT);
+            for (Subnet subnet : plan.getSubnetsBySize()) {
+                System.out.println("✓ Subnet '" + subnet.getName() + "' calculé avec succès.");
             }
 
             // Print results in original order
             System.out.println("\n" + "=".repeat(60));
             System.out.println("              RÉSULTATS VLSM");
             System.out.println("=".repeat(60));
-            System.out.println("Adresse réseau originale: " + ip + "/" + mask);
+            System.out.println("Adresse réseau originale: " + plan.getAddresseReseau() + "/" + mask);
             System.out.println("Masque de sous-réseau: " + convertMaskToIp(mask));
             System.out.println("Nombre total de subnets: " + n);
-            System.out.println("Total d'adresses utilisées: " + totalHostsNeeded + "/" + availableAddresses);
+            System.out.println("Total d'adresses utilisées: " + plan.getUsedAddresses() + "/" + plan.getAvailableAddresses());
+            System.out.println("Total d'hôtes gaspillés: " + plan.getWastedHosts());
+            if (plan.getExcludedAddresses() > 0) {
+                System.out.println("Adresses exclues: " + plan.getExcludedAddresses());
+            }
+            System.out.println("Plus grand bloc aligné libre: " + (plan.getLargestFreePrefix() < 0 ? "aucun"
+                               : "/" + plan.getLargestFreePrefix() + " (" + plan.getLargestFreeBlock() + " adresses)"));
             System.out.println("=".repeat(60));
 
             // Display results in original input order
             System.out.println("\n=== Subnets dans l'ordre de saisie ===");
-            for (int i = 0; i < originalOrder.length; i++) {
-                Subnet subnet = originalOrder[i];
+            for (Subnet subnet : plan.getSubnets()) {
                 System.out.println("\n┌─ " + subnet.getName() + " " + "─".repeat(Math.max(1, 45 - subnet.getName().length())));
-                System.out.println("│ Hôtes demandés      : " + subnet.getHosts());
+                System.out.println("│ Hôtes demandés      : " + subnet.getHotes());
                 System.out.println("│ Adresse Réseau      : " + subnet.getAddresseReseau());
                 System.out.println("│ Adresse Broadcast   : " + subnet.getAddresseBroadcast());
                 System.out.println("│ Première Utilisable : " + subnet.getPremAddUtilisable());
                 System.out.println("│ Dernière Utilisable : " + subnet.getDernAddUtilisable());
                 System.out.println("│ Masque              : /" + subnet.getMasque() + " (" + convertMaskToIp(subnet.getMasque()) + ")");
                 
-                int actualHosts = (int) Math.pow(2, 32 - subnet.getMasque()) - 2;
+                long actualHosts = subnet.getHotesDisponibles();
                 System.out.println("│ Hôtes disponibles   : " + actualHosts);
-                int wastedHosts = actualHosts - subnet.getHosts();
+                long wastedHosts = actualHosts - subnet.getHotes();
                 if (wastedHosts > 0) {
                     System.out.println("│ Hôtes gaspillés     : " + wastedHosts);
                 }
@@ -341,14 +293,13 @@ public class VlsmCli {
 
             // Display summary by size order
             System.out.println("\n=== Récapitulatif par ordre de taille (plus grand au plus petit) ===");
-            for (int i = 0; i < subnetTab.length; i++) {
-                Subnet subnet = subnetTab[i];
-                int actualHosts = (int) Math.pow(2, 32 - subnet.getMasque()) - 2;
+            for (Subnet subnet : plan.getSubnetsBySize()) {
+                long actualHosts = subnet.getHotesDisponibles();
                 System.out.printf("%-20s | /%2d | %10s | Hôtes: %8d/%8d%n", 
                     subnet.getName(), 
                     subnet.getMasque(), 
                     subnet.getAddresseReseau(),
-                    subnet.getHosts(),
+                    subnet.getHotes(),
                     actualHosts);
             }
 
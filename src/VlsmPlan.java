@@ -0,0 +1,208 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable result of a VLSM allocation.
+ * Holds the parent network and the allocated subnets in input order, plus the
+ * allocation order (largest subnet first) as an index array.
+ * The free space report (largest free block, gaps) is computed from the
+ * blocks on first use, so it is the same whichever way the plan was built;
+ * so is the address index. Ranges excluded from the allocation (see
+ * Exclusions) are kept as aligned blocks: they count neither as used nor as
+ * free space.
+ */
+public final class VlsmPlan {
+    private final int reseau;
+    private final int masque;
+    private final Subnet[] subnets;
+    private final int[] allocationOrder;
+    private final long totalRequiredHosts;
+    private final long usedAddresses;
+    // Excluded blocks inside the parent, packed like in computeFreeSpace and sorted
+    private final long[] excludedBlocks;
+    // {largest free prefix or -1, free addresses in gaps}, computed on first use
+    private volatile long[] freeSpace;
+    private volatile SubnetIndex index;
+
+    VlsmPlan(int reseau, int masque, Subnet[] subnets, int[] allocationOrder,
+             long totalRequiredHosts, long usedAddresses) {
+        this(reseau, masque, subnets, allocationOrder, totalRequiredHosts, usedAddresses, new long[0]);
+    }
+
+    VlsmPlan(int reseau, int masque, Subnet[] subnets, int[] allocationOrder,
+             long totalRequiredHosts, long usedAddresses, long[] excludedBlocks) {
+        this.reseau = reseau;
+        this.masque = masque;
+        this.subnets = subnets;
+        this.allocationOrder = allocationOrder;
+        this.totalRequiredHosts = totalRequiredHosts;
+        this.usedAddresses = usedAddresses;
+        this.excludedBlocks = excludedBlocks;
+    }
+
+    public int getReseau() {
+        return reseau;
+    }
+
+    public String getAddresseReseau() {
+        return Ipv4.toString(reseau);
+    }
+
+    public int getMasque() {
+        return masque;
+    }
+
+    public int size() {
+        return subnets.length;
+    }
+
+    // Subnet at the given position in input order
+    public Subnet get(int index) {
+        return subnets[index];
+    }
+
+    // Subnet at the given position in allocation order (largest first)
+    public Subnet getBySize(int index) {
+        return subnets[allocationOrder[index]];
+    }
+
+    // Subnets in the order the requirements were given
+    public List<Subnet> getSubnets() {
+        return new AbstractList<Subnet>() {
+            @Override
+            public Subnet get(int index) {
+                return VlsmPlan.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return subnets.length;
+            }
+        };
+    }
+
+    // Subnets in allocation order (largest first)
+    public List<Subnet> getSubnetsBySize() {
+        return new AbstractList<Subnet>() {
+            @Override
+            public Subnet get(int index) {
+                return getBySize(index);
+            }
+
+            @Override
+            public int size() {
+                return subnets.length;
+            }
+        };
+    }
+
+    public long getTotalRequiredHosts() {
+        return totalRequiredHosts;
+    }
+
+    public long getUsedAddresses() {
+        return usedAddresses;
+    }
+
+    public long getAvailableAddresses() {
+        return 1L << (32 - masque);
+    }
+
+    // Addresses of the parent left out of the allocation by exclusions
+    public long getExcludedAddresses() {
+        long total = 0;
+        for (long block : excludedBlocks) {
+            total += 1L << (32 - (int) (block & 63));
+        }
+        return total;
+    }
+
+    // Excluded blocks, sorted and packed as (unsigned address << 6) | prefix; not to be modified
+    long[] getExcludedBlocks() {
+        return excludedBlocks;
+    }
+
+    // Addresses of the blocks not needed by the required hosts, network and broadcast excluded
+    public long getWastedHosts() {
+        return usedAddresses - 2L * subnets.length - totalRequiredHosts;
+    }
+
+    // Prefix length of the largest aligned block still free in the parent, -1 if it is full
+    public int getLargestFreePrefix() {
+        return (int) freeSpace()[0];
+    }
+
+    // Size of the largest aligned block still free, 0 if the parent is full
+    public long getLargestFreeBlock() {
+        int prefix = getLargestFreePrefix();
+        return prefix < 0 ? 0 : 1L << (32 - prefix);
+    }
+
+    // Free addresses left between blocks, i.e. before the end of the last block
+    public long getGapAddresses() {
+        return freeSpace()[1];
+    }
+
+    // Address lookups over the subnets (containing subnet, overlaps), built on first use
+    public SubnetIndex getIndex() {
+        SubnetIndex result = index;
+        if (result == null) {
+            result = SubnetIndex.of(this);
+            index = result;
+        }
+        return result;
+    }
+
+    private long[] freeSpace() {
+        long[] result = freeSpace;
+        if (result == null) {
+            result = computeFreeSpace();
+            freeSpace = result;
+        }
+        return result;
+    }
+
+    // Walk the blocks by address; each free range is split into aligned blocks
+    private long[] computeFreeSpace() {
+        // Excluded blocks and subnets, address (unsigned) above the prefix; blocks never overlap
+        // so a primitive sort does it
+        long[] blocks = Arrays.copyOf(excludedBlocks, excludedBlocks.length + subnets.length);
+        for (int i = 0; i < subnets.length; i++) {
+            blocks[excludedBlocks.length + i] = (Integer.toUnsignedLong(subnets[i].getReseau()) << 6)
+                                                | subnets[i].getMasque();
+        }
+        Arrays.sort(blocks);
+        long cursor = Integer.toUnsignedLong(reseau);
+        long gaps = 0;
+        int largest = 33;
+        for (long block : blocks) {
+            long start = block >>> 6;
+            largest = Math.min(largest, largestAligned(cursor, start));
+            gaps += start - cursor;
+            cursor = Math.max(cursor, start + (1L << (32 - (int) (block & 63))));
+        }
+        largest = Math.min(largest, largestAligned(cursor, Integer.toUnsignedLong(reseau) + getAvailableAddresses()));
+        return new long[] {largest == 33 ? -1 : largest, gaps};
+    }
+
+    // Prefix of the largest aligned block in [start, end), 33 if the range is empty
+    private static int largestAligned(long start, long end) {
+        int best = 33;
+        while (start < end) {
+            long size = start == 0 ? 1L << 32 : Long.lowestOneBit(start);
+            while (start + size > end) {
+                size >>>= 1;
+            }
+            best = Math.min(best, 32 - Long.numberOfTrailingZeros(size));
+            start += size;
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VlsmPlan{reseau='%s/%d', subnets=%d, utilisees=%d/%d}",
+                           getAddresseReseau(), masque, subnets.length, usedAddresses, getAvailableAddresses());
+    }
+}